@@ -0,0 +1,48 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Formulário de exemplo ({@code forms/exemplo.properties}) renderizado pelo
+ * layout de {@link FieldLayout} em cada {@link RenderBackend}.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BackendBenchmark {
+
+    @Param({ "itext5", "raw" })
+    public String backend;
+
+    private RecordRenderer<FormRecord> renderer;
+    private FormRecord record;
+
+    @Setup
+    public void setup() throws Exception {
+        FormPlan plan = FormPlans.get("exemplo");
+        renderer = RenderBackend.forName(backend).renderer(plan);
+        Map<String, String> answers = new HashMap<>();
+        answers.put("28", "(11) 99999-9999");
+        answers.put("29", "1");
+        for (int i = 0; i < 21; i++)
+            answers.put(AnswerKeys.option("33", i), i % 2 == 0 ? "1" : "2");
+        answers.put(AnswerKeys.other("33"), "Tosse");
+        record = new FormRecord("1", answers);
+    }
+
+    @Benchmark
+    public byte[] renderRecord() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        renderer.render(record, out);
+        return out.toByteArray();
+    }
+}
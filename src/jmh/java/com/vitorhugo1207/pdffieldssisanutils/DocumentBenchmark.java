@@ -0,0 +1,32 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.pdf.PdfWriter;
+
+/**
+ * Documento de exemplo de {@link Main} renderizado de ponta a ponta em memória.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DocumentBenchmark {
+
+    @Benchmark
+    public byte[] renderExampleDocument() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        Document document = new Document(PageSize.A4, 20, 20, 20, 20);
+        PdfWriter.getInstance(document, out);
+        document.open();
+        Main.addExampleFields(document);
+        document.close();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,66 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.itextpdf.text.pdf.PdfPCell;
+
+/**
+ * Bytes alocados para montar cada tipo de campo (sem layout): ver
+ * {@code gc.alloc.rate.norm} (bytes/op) do profiler {@code gc}.
+ * Uso: {@code ./gradlew jmh -PjmhInclude=FieldAllocationBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FieldAllocationBenchmark {
+
+    private final List<String> legend = Arrays.asList(
+            "1 - Urbana    2 - Rural",
+            "3 - Periurbana  9 - Ignorado");
+
+    private List<String> options;
+    private List<String> answers;
+
+    @Setup
+    public void setup() {
+        options = new ArrayList<>();
+        answers = new ArrayList<>();
+        for (int i = 0; i < 21; i++) {
+            options.add("Opção " + i);
+            answers.add(i % 3 == 0 ? "1" : "2");
+        }
+    }
+
+    @Benchmark
+    public PdfPCell descriptiveField() {
+        return PdfFieldUtils.createDescriptiveField("28", "(DDD) Telefone", "(11) 99999-9999", 30f, 0);
+    }
+
+    @Benchmark
+    public PdfPCell fieldWithLegendAndAnswerBox() {
+        return PdfFieldUtils.createFieldWithLegendAndAnswerBox("29", "Zona", legend, "1", 25f);
+    }
+
+    @Benchmark
+    public PdfPCell multipleOptionsField() {
+        return PdfFieldUtils.createMultipleOptionsField("33", "Sinais e Sintomas",
+                "1 - Sim    2 - Não    9 - Ignorado", options, answers, 4, 100f, true, "Tosse");
+    }
+
+    @Benchmark
+    public PdfPCell multipleOptionsFieldFlat() {
+        return PdfFieldUtils.createMultipleOptionsFieldFlat("33", "Sinais e Sintomas",
+                "1 - Sim    2 - Não    9 - Ignorado", options, answers, 4, 100f, true, "Tosse");
+    }
+}
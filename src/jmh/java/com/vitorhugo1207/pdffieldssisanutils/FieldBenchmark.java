@@ -0,0 +1,49 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.itextpdf.text.pdf.PdfPCell;
+import com.itextpdf.text.pdf.PdfPTable;
+
+/**
+ * Montagem dos campos simples (sem layout), como no exemplo 1 de {@link Main}.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FieldBenchmark {
+
+    private final List<String> legend = Arrays.asList(
+            "1 - Urbana    2 - Rural",
+            "3 - Periurbana  9 - Ignorado");
+
+    private PdfPCell[] rowCells;
+
+    @Setup
+    public void setup() {
+        rowCells = new PdfPCell[] { createDescriptiveField(), createFieldWithLegendAndAnswerBox(),
+                PdfFieldUtils.createDescriptiveField("30", "País (se residente fora do Brasil)", "", 45f, 0) };
+    }
+
+    @Benchmark
+    public PdfPCell createDescriptiveField() {
+        return PdfFieldUtils.createDescriptiveField("28", "(DDD) Telefone", "(11) 99999-9999", 30f, 0);
+    }
+
+    @Benchmark
+    public PdfPCell createFieldWithLegendAndAnswerBox() {
+        return PdfFieldUtils.createFieldWithLegendAndAnswerBox("29", "Zona", legend, "1", 25f);
+    }
+
+    @Benchmark
+    public PdfPTable createResponsiveRow() {
+        return PdfFieldUtils.createResponsiveRow(rowCells, new float[] { 30f, 25f, 45f });
+    }
+}
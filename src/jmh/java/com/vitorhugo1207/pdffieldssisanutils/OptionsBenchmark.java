@@ -0,0 +1,88 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.pdf.PdfPCell;
+import com.itextpdf.text.pdf.PdfWriter;
+
+/**
+ * Campos de múltipla escolha por quantidade de opções e de colunas:
+ * só a montagem ({@code build*}) e a montagem com layout em um documento
+ * em memória ({@code render*}).
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OptionsBenchmark {
+
+    @Param({ "6", "21", "100" })
+    public int optionCount;
+
+    @Param({ "2", "4" })
+    public int columns;
+
+    private List<String> options;
+    private List<String> answers;
+
+    @Setup
+    public void setup() {
+        options = new ArrayList<>();
+        answers = new ArrayList<>();
+        String[] codes = { "1", "2", "9", "" };
+        for (int i = 0; i < optionCount; i++) {
+            options.add("Opção " + (i + 1));
+            answers.add(codes[i % codes.length]);
+        }
+    }
+
+    @Benchmark
+    public PdfPCell buildNested() {
+        return nested();
+    }
+
+    @Benchmark
+    public PdfPCell buildFlat() {
+        return flat();
+    }
+
+    @Benchmark
+    public byte[] renderNested() throws Exception {
+        return render(nested());
+    }
+
+    @Benchmark
+    public byte[] renderFlat() throws Exception {
+        return render(flat());
+    }
+
+    private PdfPCell nested() {
+        return PdfFieldUtils.createMultipleOptionsField("33", "Sinais e Sintomas",
+                "1 - Sim    2 - Não    9 - Ignorado", options, answers, columns, 100f, true, "Tosse");
+    }
+
+    private PdfPCell flat() {
+        return PdfFieldUtils.createMultipleOptionsFieldFlat("33", "Sinais e Sintomas",
+                "1 - Sim    2 - Não    9 - Ignorado", options, answers, columns, 100f, true, "Tosse");
+    }
+
+    static byte[] render(PdfPCell field) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        Document document = new Document(PageSize.A4, 20, 20, 20, 20);
+        PdfWriter.getInstance(document, out);
+        document.open();
+        document.add(PdfFieldUtils.createResponsiveRow(new PdfPCell[] { field }, new float[] { 100f }));
+        document.close();
+        return out.toByteArray();
+    }
+}
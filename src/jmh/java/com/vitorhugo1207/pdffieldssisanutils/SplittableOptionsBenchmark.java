@@ -0,0 +1,59 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.pdf.PdfWriter;
+
+/**
+ * Campo de opções divisível ({@link SplittableOptionsField}) com listas muito
+ * grandes, renderizado em um documento em memória. O tempo por opção deve se
+ * manter aproximadamente constante entre as quantidades.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SplittableOptionsBenchmark {
+
+    @Param({ "100", "1000", "5000" })
+    public int optionCount;
+
+    @Param({ "4" })
+    public int columns;
+
+    private List<String> options;
+    private List<String> answers;
+
+    @Setup
+    public void setup() {
+        options = new ArrayList<>();
+        answers = new ArrayList<>();
+        String[] codes = { "1", "2", "9", "" };
+        for (int i = 0; i < optionCount; i++) {
+            options.add("Município " + (i + 1));
+            answers.add(codes[i % codes.length]);
+        }
+    }
+
+    @Benchmark
+    public byte[] renderSplittable() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        Document document = new Document(PageSize.A4, 20, 20, 20, 20);
+        PdfWriter.getInstance(document, out);
+        document.open();
+        PdfFieldUtils.createSplittableOptionsField("40", "Municípios", "1 - Sim    2 - Não", options, answers,
+                columns, true, "Outro").addTo(document);
+        document.close();
+        return out.toByteArray();
+    }
+}
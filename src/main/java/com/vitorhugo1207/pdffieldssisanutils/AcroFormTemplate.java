@@ -0,0 +1,117 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Element;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.pdf.AcroFields;
+import com.itextpdf.text.pdf.BaseField;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfStamper;
+import com.itextpdf.text.pdf.TextField;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Formulário PDF preenchível (AcroForm) gerado a partir de um
+ * {@link FormSkeleton}: cada posição de resposta vira um campo de texto com o
+ * nome da chave de {@link AnswerKeys} (com "." trocado por "_", já que o ponto
+ * separa níveis de campo no AcroForm).
+ * <p>
+ * Preencher o modelo com {@link PdfStamper} não refaz o layout das tabelas, e
+ * os campos podem ser lidos de volta com {@link #read(byte[])} quando o PDF
+ * não é achatado. A instância é imutável e pode ser compartilhada entre threads.
+ */
+public final class AcroFormTemplate {
+
+    private final byte[] pdf;
+
+    private AcroFormTemplate(byte[] pdf) {
+        this.pdf = pdf;
+    }
+
+    /** Adiciona um campo de texto sobre cada posição de resposta do esqueleto. */
+    public static AcroFormTemplate create(FormSkeleton skeleton) throws DocumentException, IOException {
+        PdfReader reader = new PdfReader(skeleton.getPdf());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PdfStamper stamper = new PdfStamper(reader, out);
+
+        for (AnswerSlot slot : skeleton.getSlots()) {
+            TextField field = new TextField(stamper.getWriter(), PdfFieldUtils.answerArea(slot),
+                    fieldName(slot.getKey()));
+            Font font = PdfFieldUtils.answerFont(slot.getKind());
+            field.setFont(font.getCalculatedBaseFont(false));
+            field.setFontSize(font.getSize());
+            // Quadrados e bordas já fazem parte do esqueleto
+            field.setBorderWidth(0);
+            switch (slot.getKind()) {
+                case BOX:
+                case CHECKBOX:
+                    field.setAlignment(Element.ALIGN_CENTER);
+                    break;
+                case TEXT_BLOCK:
+                    field.setOptions(BaseField.MULTILINE);
+                    break;
+                default:
+                    break;
+            }
+            stamper.addAnnotation(field.getTextField(), slot.getPage());
+        }
+
+        stamper.close();
+        reader.close();
+        return new AcroFormTemplate(out.toByteArray());
+    }
+
+    public static AcroFormTemplate fromBytes(byte[] pdf) {
+        return new AcroFormTemplate(pdf.clone());
+    }
+
+    /** Nome do campo AcroForm correspondente a uma chave de resposta. */
+    public static String fieldName(String key) {
+        return key.replace('.', '_');
+    }
+
+    /**
+     * Preenche o modelo com as respostas de um registro. Com {@code flatten}
+     * os campos são convertidos em conteúdo fixo da página.
+     */
+    public void fill(Map<String, String> answers, OutputStream out, boolean flatten)
+            throws DocumentException, IOException {
+        PdfReader reader = new PdfReader(pdf);
+        PdfStamper stamper = new PdfStamper(reader, out);
+        AcroFields fields = stamper.getAcroFields();
+        for (Map.Entry<String, String> answer : answers.entrySet()) {
+            if (answer.getValue() != null && !answer.getValue().isEmpty())
+                fields.setField(fieldName(answer.getKey()), answer.getValue());
+        }
+        stamper.setFormFlattening(flatten);
+        stamper.close();
+        reader.close();
+    }
+
+    /** Lê os campos de um PDF preenchido (não achatado), pelas chaves de resposta. */
+    public static Map<String, String> read(byte[] pdf) throws IOException {
+        PdfReader reader = new PdfReader(pdf);
+        try {
+            AcroFields fields = reader.getAcroFields();
+            Map<String, String> answers = new HashMap<>();
+            for (String name : fields.getFields().keySet()) {
+                String value = fields.getField(name);
+                if (value != null && !value.isEmpty())
+                    answers.put(name.replace('_', '.'), value);
+            }
+            return answers;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /** Bytes do formulário vazio. */
+    public byte[] getPdf() {
+        return pdf.clone();
+    }
+}
@@ -0,0 +1,83 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.Phrase;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tabela de códigos de resposta de um campo, para guardar respostas
+ * codificadas como um {@code byte} por opção em vez de uma {@code String}.
+ * <p>
+ * O valor 0 é sempre a resposta em branco; os demais são os índices (a partir
+ * de 1) dos códigos da tabela. As {@link Phrase}s de cada código são montadas
+ * uma vez e reaproveitadas em todas as renderizações.
+ */
+public final class AnswerCodes {
+
+    /** Códigos do SINAN: 1 = Sim, 2 = Não, 9 = Ignorado. */
+    public static final AnswerCodes SINAN = of("1", "2", "9");
+
+    /** Valor da resposta em branco. */
+    public static final byte BLANK = 0;
+
+    /** Retorno de {@link #encode} para resposta fora da tabela. */
+    public static final int UNKNOWN = -1;
+
+    private final String[] codes;
+    private final Phrase[] checkboxPhrases;
+
+    private AnswerCodes(String[] codes) {
+        this.codes = new String[codes.length + 1];
+        this.codes[0] = "";
+        System.arraycopy(codes, 0, this.codes, 1, codes.length);
+        this.checkboxPhrases = new Phrase[this.codes.length];
+        for (int i = 0; i < this.codes.length; i++)
+            checkboxPhrases[i] = PdfFieldUtils.checkboxPhrase(this.codes[i]);
+    }
+
+    /** Tabela com os códigos informados, no máximo 255. */
+    public static AnswerCodes of(String... codes) {
+        if (codes.length > 255)
+            throw new IllegalArgumentException("No máximo 255 códigos por campo");
+        for (String code : codes)
+            if (code == null || code.isEmpty())
+                throw new IllegalArgumentException("Código vazio na tabela: " + Arrays.toString(codes));
+        return new AnswerCodes(codes.clone());
+    }
+
+    public static AnswerCodes of(List<String> codes) {
+        return of(codes.toArray(new String[0]));
+    }
+
+    /**
+     * Valor codificado da resposta, de 0 a 255 ({@link #BLANK} para nula ou
+     * vazia), ou {@link #UNKNOWN} se o código não estiver na tabela. Guarde com
+     * {@code (byte)} e leia de volta com {@code & 0xff}.
+     */
+    public int encode(String answer) {
+        if (answer == null || answer.isEmpty())
+            return BLANK;
+        for (int i = 1; i < codes.length; i++)
+            if (codes[i].equals(answer))
+                return i;
+        return UNKNOWN;
+    }
+
+    /** Texto do código; valores fora da tabela são tratados como branco. */
+    public String decode(byte value) {
+        int i = value & 0xff;
+        return i < codes.length ? codes[i] : "";
+    }
+
+    /** Phrase pré-montada do código, na fonte dos quadradinhos de opção. */
+    Phrase checkboxPhrase(byte value) {
+        int i = value & 0xff;
+        return i < checkboxPhrases.length ? checkboxPhrases[i] : checkboxPhrases[0];
+    }
+
+    /** Códigos da tabela, sem o branco. */
+    public List<String> getCodes() {
+        return Arrays.asList(codes).subList(1, codes.length);
+    }
+}
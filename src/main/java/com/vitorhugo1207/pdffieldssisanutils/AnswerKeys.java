@@ -0,0 +1,27 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+/**
+ * Chaves usadas para identificar cada resposta de um formulário.
+ * O campo simples usa o próprio número ("29"), cada opção de um campo de
+ * múltipla escolha usa "número.índice" ("33.0") e o campo "Outros" usa
+ * "número.outros".
+ */
+public final class AnswerKeys {
+
+    public static final String OTHER_SUFFIX = "outros";
+
+    private AnswerKeys() {
+    }
+
+    public static String field(String fieldNumber) {
+        return fieldNumber;
+    }
+
+    public static String option(String fieldNumber, int index) {
+        return fieldNumber + "." + index;
+    }
+
+    public static String other(String fieldNumber) {
+        return fieldNumber + "." + OTHER_SUFFIX;
+    }
+}
@@ -0,0 +1,50 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.Rectangle;
+
+/**
+ * Posição de uma resposta dentro de um esqueleto já renderizado.
+ */
+public final class AnswerSlot {
+
+    /** Como a resposta é desenhada dentro da célula registrada. */
+    public enum Kind {
+        /** Quadrado de resposta no topo esquerdo (campo com legenda). */
+        BOX,
+        /** Código centralizado no quadradinho de uma opção. */
+        CHECKBOX,
+        /** Texto livre com quebra de linha (campo descritivo). */
+        TEXT_BLOCK,
+        /** Texto em uma linha (valor de "Outros"). */
+        TEXT_LINE
+    }
+
+    private final String key;
+    private final Kind kind;
+    private final int page;
+    private final Rectangle position;
+
+    AnswerSlot(String key, Kind kind, int page, Rectangle position) {
+        this.key = key;
+        this.kind = kind;
+        this.page = page;
+        this.position = new Rectangle(position);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /** Página (começando em 1) onde a célula foi desenhada. */
+    public int getPage() {
+        return page;
+    }
+
+    public Rectangle getPosition() {
+        return new Rectangle(position);
+    }
+}
@@ -0,0 +1,82 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.DocumentException;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Gravação atômica de arquivos: o conteúdo vai para um temporário no mesmo
+ * diretório, é sincronizado com o disco e só então renomeado para o nome
+ * final. Quem lê o diretório nunca vê um arquivo pela metade, mesmo se o
+ * processo cair no meio da gravação.
+ */
+public final class AtomicFiles {
+
+    /** Escreve o conteúdo do arquivo. */
+    @FunctionalInterface
+    public interface Content {
+        void writeTo(OutputStream out) throws IOException, DocumentException;
+    }
+
+    private AtomicFiles() {
+    }
+
+    public static void write(Path target, byte[] bytes) throws IOException {
+        try {
+            write(target, out -> out.write(bytes));
+        } catch (DocumentException e) {
+            throw new IllegalStateException(e); // não acontece: só bytes são escritos
+        }
+    }
+
+    public static void write(Path target, Content content) throws IOException, DocumentException {
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        // Começa com ponto para não casar com filtros por extensão (*.pdf, *.job).
+        // Não usa createTempFile, que cria o arquivo só com permissão para o dono.
+        Path tmp = dir.resolve("." + target.getFileName() + "."
+                + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+        boolean moved = false;
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+                content.writeTo(new NonClosingOutputStream(out));
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+        } finally {
+            if (!moved)
+                Files.deleteIfExists(tmp);
+        }
+    }
+
+    // O iText fecha o stream ao fechar o documento; o canal precisa continuar
+    // aberto até o force()
+    private static final class NonClosingOutputStream extends java.io.FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.DocumentException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Renderiza muitos registros em paralelo, um {@code Document}/{@code PdfWriter}
+ * por registro.
+ * <p>
+ * No máximo {@code maxInFlight} registros ficam em memória ao mesmo tempo
+ * (sendo renderizados ou aguardando a vez na saída ordenada), então o consumo
+ * de memória não cresce com o tamanho do lote: quem lê os registros fica
+ * bloqueado até haver espaço.
+ */
+public final class BatchRenderer<R> {
+
+    /** Recebe o PDF de cada registro. Nunca é chamado depois que {@code run} retorna. */
+    @FunctionalInterface
+    public interface Sink<R> {
+        void accept(long index, R record, byte[] pdf) throws IOException;
+    }
+
+    private final RecordRenderer<R> renderer;
+    private ExecutorService executor;
+    private int maxInFlight = Runtime.getRuntime().availableProcessors() * 2;
+    private boolean preserveOrder;
+
+    // Tamanho do último PDF gerado, usado como capacidade inicial do buffer
+    private final AtomicInteger sizeHint = new AtomicInteger(32 * 1024);
+
+    public BatchRenderer(RecordRenderer<R> renderer) {
+        this.renderer = renderer;
+    }
+
+    /**
+     * Executor usado para renderizar. Por padrão cada registro roda em uma
+     * virtual thread. Um executor informado aqui não é encerrado pelo lote.
+     */
+    public BatchRenderer<R> setExecutor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /** Número máximo de registros em memória ao mesmo tempo. */
+    public BatchRenderer<R> setMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 1)
+            throw new IllegalArgumentException("maxInFlight deve ser maior que zero");
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    /**
+     * Quando verdadeiro, o {@link Sink} recebe os PDFs na ordem de entrada e
+     * nunca é chamado por duas threads ao mesmo tempo. Caso contrário recebe
+     * cada PDF assim que fica pronto, de qualquer thread.
+     */
+    public BatchRenderer<R> setPreserveOrder(boolean preserveOrder) {
+        this.preserveOrder = preserveOrder;
+        return this;
+    }
+
+    public BatchResult run(Stream<R> records, Sink<R> sink)
+            throws DocumentException, IOException, InterruptedException {
+        return run(records.iterator(), sink);
+    }
+
+    public BatchResult run(Iterator<R> records, Sink<R> sink)
+            throws DocumentException, IOException, InterruptedException {
+        boolean ownExecutor = executor == null;
+        ExecutorService exec = ownExecutor ? Executors.newVirtualThreadPerTaskExecutor() : executor;
+
+        Run<R> run = new Run<>(sink, maxInFlight, preserveOrder);
+        long start = System.nanoTime();
+        long index = 0;
+        try {
+            while (records.hasNext() && run.failure.get() == null) {
+                R record = records.next();
+                run.permits.acquire();
+                long i = index;
+                try {
+                    exec.execute(() -> run.complete(i, record, renderOne(record, run)));
+                } catch (RuntimeException e) {
+                    run.permits.release(); // tarefa recusada: a vaga não volta sozinha
+                    throw e;
+                }
+                index++;
+            }
+        } catch (Throwable t) {
+            // Nada mais chega ao sink depois que o laço sai com erro
+            run.failure.compareAndSet(null, t);
+            throw t;
+        } finally {
+            // Espera todos os registros em andamento, também em caso de erro:
+            // o sink não é chamado depois que run() retorna
+            run.permits.acquireUninterruptibly(maxInFlight);
+            if (ownExecutor)
+                exec.shutdown();
+        }
+        rethrow(run.failure.get());
+        return new BatchResult(run.records.get(), run.bytes.get(), System.nanoTime() - start);
+    }
+
+    private byte[] renderOne(R record, Run<R> run) {
+        if (run.failure.get() != null)
+            return null;
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(sizeHint.get());
+            renderer.render(record, out);
+            sizeHint.set(out.size());
+            return out.toByteArray();
+        } catch (Throwable t) {
+            run.failure.compareAndSet(null, t);
+            return null;
+        }
+    }
+
+    private static void rethrow(Throwable t) throws DocumentException, IOException {
+        if (t == null)
+            return;
+        if (t instanceof DocumentException)
+            throw (DocumentException) t;
+        if (t instanceof IOException)
+            throw (IOException) t;
+        if (t instanceof RuntimeException)
+            throw (RuntimeException) t;
+        if (t instanceof Error)
+            throw (Error) t;
+        throw new IllegalStateException(t);
+    }
+
+    /** Estado de uma execução do lote. */
+    private static final class Run<R> {
+        final Sink<R> sink;
+        final Semaphore permits;
+        final boolean ordered;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final AtomicLong records = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+
+        // Resultados prontos esperando a vez (apenas na saída ordenada)
+        private final Map<Long, Object[]> pending = new HashMap<>();
+        private long next;
+
+        Run(Sink<R> sink, int maxInFlight, boolean ordered) {
+            this.sink = sink;
+            this.permits = new Semaphore(maxInFlight);
+            this.ordered = ordered;
+        }
+
+        void complete(long index, R record, byte[] pdf) {
+            if (!ordered) {
+                deliver(index, record, pdf);
+                permits.release();
+                return;
+            }
+            synchronized (this) {
+                pending.put(index, new Object[] { record, pdf });
+                Object[] ready;
+                while ((ready = pending.remove(next)) != null) {
+                    @SuppressWarnings("unchecked")
+                    R r = (R) ready[0];
+                    deliver(next++, r, (byte[]) ready[1]);
+                    permits.release();
+                }
+            }
+        }
+
+        private void deliver(long index, R record, byte[] pdf) {
+            // Registros com falha (pdf nulo) apenas liberam a vaga
+            if (pdf == null || failure.get() != null)
+                return;
+            try {
+                sink.accept(index, record, pdf);
+                records.incrementAndGet();
+                bytes.addAndGet(pdf.length);
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            }
+        }
+    }
+}
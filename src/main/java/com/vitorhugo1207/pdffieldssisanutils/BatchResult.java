@@ -0,0 +1,39 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+/**
+ * Resumo de uma execução em lote.
+ */
+public final class BatchResult {
+
+    private final long records;
+    private final long bytes;
+    private final long elapsedNanos;
+
+    BatchResult(long records, long bytes, long elapsedNanos) {
+        this.records = records;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getRecordsPerSecond() {
+        return elapsedNanos == 0 ? 0 : records * 1_000_000_000d / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d registros, %d bytes em %.2fs (%.1f registros/s)",
+                records, bytes, elapsedNanos / 1e9, getRecordsPerSecond());
+    }
+}
@@ -0,0 +1,135 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.pdf.PdfWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+
+/**
+ * Gera um único PDF com muitos registros, um após o outro, sem acumular
+ * os registros em memória.
+ * <p>
+ * Cada registro começa em uma página nova. As linhas montadas por
+ * {@link PdfFieldUtils} são escritas assim que adicionadas e ficam livres para
+ * o GC ao fim de {@link #write}; a página anterior é gravada no stream quando a
+ * próxima começa. O que permanece até o {@link #close()} é apenas a tabela de
+ * referências do {@code PdfWriter} (poucas dezenas de bytes por objeto).
+ * <p>
+ * Não é thread-safe: os registros são escritos em sequência.
+ */
+public final class BulkDocumentWriter<R> implements Closeable {
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private final RecordLayout<R> layout;
+    private final Document document;
+    private final PdfWriter writer;
+
+    private long maxBytesPerRecord;
+    private long records;
+    private long peakRecordBytes;
+    private long recordsOverLimit;
+
+    public BulkDocumentWriter(OutputStream out, RecordLayout<R> layout) throws DocumentException {
+        this(out, layout, false);
+    }
+
+    /**
+     * Com {@code compact}, usa {@link CompactOutput}: como todos os registros
+     * têm o mesmo layout, bordas e quadrados viram XObjects escritos uma vez
+     * para o arquivo inteiro.
+     */
+    public BulkDocumentWriter(OutputStream out, RecordLayout<R> layout, boolean compact) throws DocumentException {
+        this.layout = layout;
+        this.document = new Document(PageSize.A4, 20, 20, 20, 20);
+        this.writer = PdfWriter.getInstance(document, new BufferedOutputStream(out, 64 * 1024));
+        if (compact)
+            CompactOutput.enable(writer);
+        document.open();
+    }
+
+    /**
+     * Alarme de alocação: conta os registros que alocaram mais que
+     * {@code maxBytesPerRecord} bytes ({@link #getRecordsOverLimit()}). A
+     * medida é feita depois que o registro já foi escrito, então não limita
+     * nada: só aponta registros fora do esperado, sem interromper o documento.
+     * O primeiro registro não entra, porque inclui a carga de classes e
+     * fontes. Zero desativa o alarme; em JVMs que não medem alocação por
+     * thread ele fica desativado.
+     */
+    public void setMaxBytesPerRecord(long maxBytesPerRecord) {
+        this.maxBytesPerRecord = THREADS != null ? maxBytesPerRecord : 0;
+    }
+
+    public void write(R record) throws DocumentException, IOException {
+        if (records > 0)
+            document.newPage();
+
+        long before = allocatedBytes();
+        layout.compose(document, record);
+        writer.flush();
+        records++;
+
+        // O primeiro registro inclui carga de classes e fontes, que não se repete
+        if (THREADS != null && records > 1) {
+            long used = allocatedBytes() - before;
+            peakRecordBytes = Math.max(peakRecordBytes, used);
+            if (maxBytesPerRecord > 0 && used > maxBytesPerRecord)
+                recordsOverLimit++;
+        }
+    }
+
+    public void writeAll(Iterator<R> records) throws DocumentException, IOException {
+        while (records.hasNext())
+            write(records.next());
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    /** Páginas geradas até agora, incluindo a página em andamento. */
+    public int getPages() {
+        return writer.getPageNumber();
+    }
+
+    /**
+     * Maior quantidade de bytes alocada por um único registro, a partir do
+     * segundo (-1 se a JVM não mede alocação).
+     */
+    public long getPeakRecordBytes() {
+        return THREADS != null ? peakRecordBytes : -1;
+    }
+
+    /** Registros que dispararam o alarme de {@link #setMaxBytesPerRecord(long)}. */
+    public long getRecordsOverLimit() {
+        return recordsOverLimit;
+    }
+
+    @Override
+    public void close() {
+        document.close();
+    }
+
+    private static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (bean.isThreadAllocatedMemorySupported()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+                return bean;
+            }
+        }
+        return null;
+    }
+}
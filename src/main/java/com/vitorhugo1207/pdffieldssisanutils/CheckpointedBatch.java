@@ -0,0 +1,362 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.DocumentException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Lote que pode ser retomado: um PDF por registro ({@code <id>.pdf}, ver
+ * {@link #outputFile(Path, String)}) gravado com {@link AtomicFiles}, e um log
+ * de conclusão só de acréscimo ({@value #LOG_NAME}) com uma linha
+ * {@code <sha256> <bytes> <id>} por PDF pronto. O id vai por último e sem
+ * alteração, exceto {@code \\}, {@code \n} e {@code \r}, escapados.
+ * <p>
+ * Ao rodar de novo no mesmo diretório, registros já no log são pulados se o
+ * arquivo existir com o tamanho registrado (ou, com
+ * {@link #setVerifyHashes(boolean)}, com o mesmo SHA-256); os demais são
+ * renderizados outra vez. Como cada PDF é gravado antes da sua linha no log e
+ * substituído de forma atômica, repetir um registro é sempre seguro. O log é
+ * sincronizado com o disco a cada {@value #FORCE_INTERVAL} linhas: uma queda
+ * perde no máximo essas linhas, e esses registros são apenas refeitos.
+ * <p>
+ * Use um renderizador determinístico ({@link FormPlan#deterministicRenderer()})
+ * para que a repetição produza exatamente os mesmos bytes.
+ * <p>
+ * O id identifica o arquivo: registros sem id são pulados (ver
+ * {@link #getWithoutId()}) e um id repetido na entrada interrompe o lote com
+ * {@link IllegalArgumentException}, já que os dois registros disputariam o
+ * mesmo PDF.
+ */
+public final class CheckpointedBatch {
+
+    public static final String LOG_NAME = "checkpoint.log";
+
+    private static final int FORCE_INTERVAL = 256;
+
+    private final Path outputDirectory;
+    private final RecordRenderer<FormRecord> renderer;
+    private boolean verifyHashes;
+    private int maxInFlight = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong repaired = new AtomicLong();
+    private final AtomicLong withoutId = new AtomicLong();
+
+    public CheckpointedBatch(Path outputDirectory, RecordRenderer<FormRecord> renderer) {
+        this.outputDirectory = outputDirectory;
+        this.renderer = renderer;
+    }
+
+    /**
+     * Confere o SHA-256 de cada PDF já concluído antes de pulá-lo, em vez de só
+     * o tamanho. Mais lento: lê todos os arquivos da execução anterior.
+     */
+    public CheckpointedBatch setVerifyHashes(boolean verifyHashes) {
+        this.verifyHashes = verifyHashes;
+        return this;
+    }
+
+    /** Ver {@link BatchRenderer#setMaxInFlight(int)}. */
+    public CheckpointedBatch setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    /** Registros pulados na última execução por já estarem concluídos. */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    /** Registros do log cujo arquivo faltava ou não conferia, e foram refeitos. */
+    public long getRepaired() {
+        return repaired.get();
+    }
+
+    /** Registros pulados na última execução por não terem id. */
+    public long getWithoutId() {
+        return withoutId.get();
+    }
+
+    /**
+     * Arquivo de saída do registro: o id, com cada byte UTF-8 fora de
+     * [A-Za-z0-9.-] trocado por '_' e dois dígitos hexadecimais (ex.:
+     * {@code 12/3} vira {@code 12_2F3} e {@code 12_3} vira {@code 12_5F3}), de
+     * modo que ids diferentes nunca dividem o mesmo arquivo.
+     */
+    public static Path outputFile(Path directory, String id) {
+        return directory.resolve(name(id) + ".pdf");
+    }
+
+    private static String name(String id) {
+        if (id == null || id.isEmpty())
+            throw new IllegalArgumentException("Registro sem id não pode ser retomado");
+        StringBuilder name = new StringBuilder(id.length() + 8);
+        for (byte b : id.getBytes(StandardCharsets.UTF_8)) {
+            if (b >= 'A' && b <= 'Z' || b >= 'a' && b <= 'z' || b >= '0' && b <= '9' || b == '.' || b == '-')
+                name.append((char) b);
+            else
+                name.append('_').append(HexFormat.of().withUpperCase().toHexDigits(b));
+        }
+        return name.toString();
+    }
+
+    /** Id como vai no log: só quebras de linha e a barra invertida são escapadas. */
+    private static String escape(String id) {
+        return id.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String logged) {
+        StringBuilder id = new StringBuilder(logged.length());
+        for (int i = 0; i < logged.length(); i++) {
+            char c = logged.charAt(i);
+            if (c == '\\' && i + 1 < logged.length()) {
+                c = logged.charAt(++i);
+                c = c == 'n' ? '\n' : c == 'r' ? '\r' : c;
+            }
+            id.append(c);
+        }
+        return id.toString();
+    }
+
+    /**
+     * Renderiza os registros que ainda não estão concluídos. O resultado conta
+     * só os renderizados nesta execução.
+     */
+    public BatchResult run(Iterator<FormRecord> records)
+            throws DocumentException, IOException, InterruptedException {
+        skipped.set(0);
+        repaired.set(0);
+        withoutId.set(0);
+        Files.createDirectories(outputDirectory);
+        removeTemporaries();
+        Path logFile = outputDirectory.resolve(LOG_NAME);
+        Map<String, Entry> done = compact(logFile, load(logFile));
+
+        try (Log log = new Log(logFile)) {
+            Iterator<FormRecord> pending = new Pending(records, done);
+            return new BatchRenderer<>(renderer).setMaxInFlight(maxInFlight).run(pending, (index, record, pdf) -> {
+                AtomicFiles.write(outputFile(outputDirectory, record.getId()), pdf);
+                log.append(HexFormat.of().formatHex(sha256(pdf)) + " " + pdf.length + " " + escape(record.getId())
+                        + "\n");
+            });
+        }
+    }
+
+    /** Conclusões registradas; linhas repetidas valem pela última e linhas cortadas são ignoradas. */
+    private static Map<String, Entry> load(Path logFile) throws IOException {
+        Map<String, Entry> done = new HashMap<>();
+        if (!Files.exists(logFile))
+            return done;
+        try (BufferedReader reader = Files.newBufferedReader(logFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ", 3);
+                if (parts.length != 3 || parts[0].length() != 64 || parts[2].isEmpty())
+                    continue; // Última linha de uma execução interrompida
+                try {
+                    done.put(unescape(parts[2]), new Entry(parts[0], Long.parseLong(parts[1])));
+                } catch (NumberFormatException e) {
+                    // idem
+                }
+            }
+        }
+        return done;
+    }
+
+    /** Reescreve o log sem linhas repetidas quando elas passam da metade. */
+    private static Map<String, Entry> compact(Path logFile, Map<String, Entry> done) throws IOException {
+        if (!Files.exists(logFile))
+            return done;
+        long lines;
+        try (Stream<String> stream = Files.lines(logFile, StandardCharsets.UTF_8)) {
+            lines = stream.count();
+        }
+        if (lines > 2L * done.size() + FORCE_INTERVAL) {
+            StringBuilder compacted = new StringBuilder(done.size() * 90);
+            for (Map.Entry<String, Entry> e : done.entrySet())
+                compacted.append(e.getValue().sha256).append(' ').append(e.getValue().size).append(' ')
+                        .append(escape(e.getKey())).append('\n');
+            AtomicFiles.write(logFile, compacted.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return done;
+    }
+
+    /** Apaga temporários de {@link AtomicFiles} deixados por uma execução interrompida. */
+    private void removeTemporaries() throws IOException {
+        try (Stream<Path> files = Files.list(outputDirectory)) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                String name = f.getFileName().toString();
+                if (name.startsWith(".") && name.endsWith(".tmp"))
+                    Files.deleteIfExists(f);
+            }
+        }
+    }
+
+    /** Confere o arquivo de um registro concluído. */
+    private boolean verify(Path file, Entry entry) {
+        try {
+            if (Files.size(file) != entry.size)
+                return false;
+            if (!verifyHashes)
+                return true;
+            return HexFormat.of().formatHex(sha256(Files.readAllBytes(file))).equals(entry.sha256);
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            return false; // Ilegível: será refeito
+        }
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Todo Java tem SHA-256
+        }
+    }
+
+    /** Linha do log. */
+    private static final class Entry {
+        final String sha256;
+        final long size;
+
+        Entry(String sha256, long size) {
+            this.sha256 = sha256;
+            this.size = size;
+        }
+    }
+
+    /** Registros de entrada que ainda precisam ser renderizados. */
+    private final class Pending implements Iterator<FormRecord> {
+        private final Iterator<FormRecord> records;
+        private final Map<String, Entry> done;
+        private final Set<String> seen = new HashSet<>();
+        private long index = -1;
+        private FormRecord next;
+
+        Pending(Iterator<FormRecord> records, Map<String, Entry> done) {
+            this.records = records;
+            this.done = done;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && records.hasNext()) {
+                FormRecord record = records.next();
+                index++;
+                String id = record.getId();
+                if (id == null || id.isEmpty()) {
+                    System.err.println("Registro " + index + " sem id: pulado");
+                    withoutId.incrementAndGet();
+                    continue;
+                }
+                if (!seen.add(id))
+                    throw new IllegalArgumentException("Registro " + index + ": id repetido na entrada: " + id);
+                Path file = outputFile(outputDirectory, id);
+                Entry entry = done.get(id);
+                if (entry == null) {
+                    next = record;
+                } else if (verify(file, entry)) {
+                    skipped.incrementAndGet();
+                } else {
+                    repaired.incrementAndGet();
+                    next = record;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public FormRecord next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            FormRecord record = next;
+            next = null;
+            return record;
+        }
+    }
+
+    /** Log só de acréscimo, compartilhado pelas threads do lote. */
+    private static final class Log implements AutoCloseable {
+        private final FileChannel channel;
+        private int unforced;
+
+        Log(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+
+        synchronized void append(String line) throws IOException {
+            ByteBuffer bytes = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining())
+                channel.write(bytes);
+            if (++unforced >= FORCE_INTERVAL) {
+                channel.force(false);
+                unforced = 0;
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            try {
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Uso: {@code CheckpointedBatch <entrada.dbf|csv> <mapeamento.properties>
+     * <formulário> <dir-saída> [--verify-hashes] [--charset X]}. Rodar de novo
+     * com os mesmos argumentos continua de onde parou.
+     */
+    public static void main(String[] args) throws Exception {
+        Path input = Path.of(args[0]);
+        ColumnMapping mapping;
+        try (InputStream in = Files.newInputStream(Path.of(args[1]))) {
+            mapping = ColumnMapping.load(in);
+        }
+        FormPlan plan = FormPlans.get(args[2]);
+        CheckpointedBatch batch = new CheckpointedBatch(Path.of(args[3]), plan.deterministicRenderer());
+        Charset charset = Charset.forName("windows-1252");
+        for (int i = 4; i < args.length; i++) {
+            switch (args[i]) {
+                case "--verify-hashes":
+                    batch.setVerifyHashes(true);
+                    break;
+                case "--charset":
+                    charset = Charset.forName(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
+            }
+        }
+        try (RecordSource source = RecordSource.open(input, mapping, charset)) {
+            BatchResult result = batch.run(source);
+            System.out.println(result + "; " + batch.getSkipped() + " já concluídos, " + batch.getRepaired()
+                    + " refeitos, " + batch.getWithoutId() + " sem id");
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Liga as colunas de uma exportação do SINAN às chaves de resposta de
+ * {@link AnswerKeys}. Em {@code .properties}:
+ *
+ * <pre>
+ * id = NU_NOTIFIC
+ * column.CS_ZONA = 29
+ * column.NU_DDD_TEL = 28
+ * column.FEBRE = 33.0
+ * column.CEFALEIA = 33.1
+ * </pre>
+ *
+ * Nomes de coluna não diferenciam maiúsculas de minúsculas. Colunas sem
+ * mapeamento são ignoradas.
+ */
+public final class ColumnMapping {
+
+    private final String idColumn;
+    private final Map<String, String> keysByColumn;
+
+    public ColumnMapping(String idColumn, Map<String, String> keysByColumn) {
+        this.idColumn = idColumn != null ? idColumn.toUpperCase(Locale.ROOT) : null;
+        Map<String, String> keys = new LinkedHashMap<>();
+        for (Map.Entry<String, String> e : keysByColumn.entrySet())
+            keys.put(e.getKey().toUpperCase(Locale.ROOT), e.getValue());
+        this.keysByColumn = Collections.unmodifiableMap(keys);
+    }
+
+    public static ColumnMapping load(InputStream in) throws IOException {
+        Properties props = new Properties();
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            props.load(reader);
+        }
+        Map<String, String> keys = new HashMap<>();
+        for (String name : props.stringPropertyNames()) {
+            if (name.startsWith("column."))
+                keys.put(name.substring("column.".length()), props.getProperty(name).trim());
+        }
+        String id = props.getProperty("id");
+        return new ColumnMapping(id != null ? id.trim() : null, keys);
+    }
+
+    /** Coluna com o identificador do registro, ou {@code null}. */
+    public String getIdColumn() {
+        return idColumn;
+    }
+
+    public Map<String, String> getKeysByColumn() {
+        return keysByColumn;
+    }
+
+    /**
+     * Resolve a mapeamento para a ordem de colunas de um arquivo.
+     */
+    Bound bind(List<String> header) {
+        int[] columns = new int[header.size()];
+        String[] keys = new String[header.size()];
+        int count = 0;
+        int id = -1;
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toUpperCase(Locale.ROOT);
+            if (name.equals(idColumn))
+                id = i;
+            String key = keysByColumn.get(name);
+            if (key != null) {
+                columns[count] = i;
+                keys[count++] = key;
+            }
+        }
+        int[] c = new int[count];
+        String[] k = new String[count];
+        System.arraycopy(columns, 0, c, 0, count);
+        System.arraycopy(keys, 0, k, 0, count);
+        return new Bound(id, c, k);
+    }
+
+    /** Mapeamento já resolvido para os índices de coluna de um arquivo. */
+    static final class Bound {
+        final int idColumn;
+        final int[] columns;
+        final String[] keys;
+
+        Bound(int idColumn, int[] columns, String[] keys) {
+            this.idColumn = idColumn;
+            this.columns = columns;
+            this.keys = keys;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfStream;
+import com.itextpdf.text.pdf.PdfTemplate;
+import com.itextpdf.text.pdf.PdfWriter;
+import com.itextpdf.text.pdf.events.PdfPageEventForwarder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Modo de saída compacta de um {@link PdfWriter}.
+ * <p>
+ * Com o modo ativo, os gráficos repetidos de {@link PdfFieldUtils} (quadrados
+ * de número e de resposta, quadradinhos das opções e bordas em U do mesmo
+ * tamanho) que se repetem são definidos uma vez por documento como Form
+ * XObject e referenciados com {@code Do}, e o documento usa compressão completa
+ * (object streams e tabela de referências comprimida).
+ */
+public final class CompactOutput {
+
+    // Marca de gráfico visto uma vez e ainda desenhado direto
+    private static final Object FIRST_USE = new Object();
+
+    private CompactOutput() {
+    }
+
+    /** Ativa o modo compacto. Deve ser chamado antes de {@code document.open()}. */
+    public static void enable(PdfWriter writer) throws DocumentException {
+        enable(writer, true);
+    }
+
+    /**
+     * Ativa a compressão completa e, com {@code shareGraphics}, os XObjects
+     * compartilhados. Os XObjects compensam quando o documento repete o mesmo
+     * layout muitas vezes (vários registros no mesmo arquivo); em um PDF de um
+     * único formulário o conteúdo já comprimido fica menor sem eles.
+     */
+    public static void enable(PdfWriter writer, boolean shareGraphics) throws DocumentException {
+        writer.setFullCompression();
+        writer.setCompressionLevel(PdfStream.BEST_COMPRESSION);
+        if (!shareGraphics)
+            return;
+        // Os XObjects ficam no próprio writer, como evento de página: um writer
+        // abandonado sem close() é coletado junto com eles
+        Templates templates = new Templates();
+        if (writer.getPageEvent() != null) {
+            templates.addPageEvent(writer.getPageEvent());
+            writer.setPageEvent(null);
+        }
+        writer.setPageEvent(templates);
+    }
+
+    public static boolean isEnabled(PdfWriter writer) {
+        return templates(writer) != null;
+    }
+
+    static boolean isEnabled(PdfContentByte cb) {
+        return templates(cb.getPdfWriter()) != null;
+    }
+
+    private static Map<String, Object> templates(PdfWriter writer) {
+        if (writer != null && writer.getPageEvent() instanceof Templates)
+            return ((Templates) writer.getPageEvent()).templates;
+        return null;
+    }
+
+    /**
+     * Desenha o XObject identificado por {@code key} em (x, y). O gráfico só
+     * vira XObject quando aparece pela segunda vez no documento: na primeira
+     * retorna {@code false} e o chamador desenha direto, para que gráficos
+     * únicos não paguem o custo de um objeto a mais.
+     */
+    static boolean addShared(PdfContentByte cb, String key, float width, float height, float x, float y,
+            Consumer<PdfContentByte> drawing) {
+        Map<String, Object> templates = templates(cb.getPdfWriter());
+        if (templates == null)
+            return false;
+        // Primeira ocorrência: só registra a chave
+        Object existing = templates.putIfAbsent(key, FIRST_USE);
+        if (existing == null)
+            return false;
+        PdfTemplate template;
+        if (existing == FIRST_USE) {
+            template = cb.createTemplate(width, height);
+            drawing.accept(template);
+            templates.put(key, template);
+        } else {
+            template = (PdfTemplate) existing;
+        }
+        cb.addTemplate(template, x, y);
+        return true;
+    }
+
+    /**
+     * XObjects de um writer. Estende o repassador de eventos para que eventos
+     * registrados depois no writer sejam adicionados a ele, em vez de
+     * substituí-lo.
+     */
+    private static final class Templates extends PdfPageEventForwarder {
+        final Map<String, Object> templates = new ConcurrentHashMap<>();
+
+        @Override
+        public void onCloseDocument(PdfWriter writer, Document document) {
+            super.onCloseDocument(writer, document);
+            templates.clear();
+        }
+    }
+}
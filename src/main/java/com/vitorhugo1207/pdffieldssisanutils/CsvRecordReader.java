@@ -0,0 +1,205 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Lê um CSV linha a linha. A primeira linha é o cabeçalho; campos entre
+ * aspas podem conter o separador, quebras de linha e aspas duplicadas.
+ * <p>
+ * Lido de um arquivo em UTF-8 ou em uma codificação de um byte por caractere
+ * (como o CP1252 das exportações), o leitor acompanha a posição em bytes de
+ * cada registro ({@link #getOffset()}) e pode recomeçar direto nela
+ * ({@link #seek(long, long)}), sem ler o que vem antes.
+ */
+public final class CsvRecordReader implements RecordSource {
+
+    private Reader reader;
+    private final Path file;
+    private final Charset charset;
+    // Bytes por caractere: 1 nas codificações de um byte, 0 em UTF-8 (depende
+    // do caractere) e -1 quando a posição não é acompanhada
+    private final int charBytes;
+    private final char delimiter;
+    private final ColumnMapping.Bound mapping;
+    private final List<String> row = new ArrayList<>();
+    private final StringBuilder value = new StringBuilder();
+    private long index;
+    private boolean hasRow;
+    // Bytes lidos e início da linha em row
+    private long position;
+    private long offset;
+
+    public CsvRecordReader(Path file, ColumnMapping mapping, Charset charset, char delimiter) throws IOException {
+        this(Files.newBufferedReader(file, charset), file, charset, mapping, delimiter);
+    }
+
+    public CsvRecordReader(Reader reader, ColumnMapping mapping, char delimiter) throws IOException {
+        this(reader, null, null, mapping, delimiter);
+    }
+
+    private CsvRecordReader(Reader reader, Path file, Charset charset, ColumnMapping mapping, char delimiter)
+            throws IOException {
+        this.reader = reader instanceof BufferedReader ? reader : new BufferedReader(reader, 64 * 1024);
+        this.file = file;
+        this.charset = charset;
+        this.charBytes = charBytes(charset);
+        this.delimiter = delimiter;
+        try {
+            if (!readRow())
+                throw new IOException("CSV vazio: cabeçalho ausente");
+            this.mapping = mapping.bind(new ArrayList<>(row));
+            this.hasRow = readRow();
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    private static int charBytes(Charset charset) {
+        if (charset == null)
+            return -1;
+        if (charset.equals(StandardCharsets.UTF_8))
+            return 0;
+        return charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1f ? 1 : -1;
+    }
+
+    /**
+     * Byte do arquivo em que começa o registro devolvido pelo próximo
+     * {@link #next()}, ou -1 se a posição não é acompanhada (leitor sem
+     * arquivo ou codificação de largura variável que não seja UTF-8).
+     */
+    public long getOffset() {
+        return charBytes < 0 ? -1 : offset;
+    }
+
+    /**
+     * Passa a ler a partir do registro de posição {@code index} (o mesmo de
+     * quando não há coluna de id), que começa no byte {@code offset} do
+     * arquivo, obtido antes com {@link #getOffset()}. Deve ser chamado antes
+     * da leitura.
+     */
+    public void seek(long offset, long index) throws IOException {
+        if (charBytes < 0)
+            throw new IllegalStateException("Posição em bytes não acompanhada para este CSV");
+        reader.close();
+        FileChannel channel = FileChannel.open(file);
+        try {
+            channel.position(offset);
+            reader = new BufferedReader(Channels.newReader(channel, charset.newDecoder(), -1), 64 * 1024);
+            this.position = offset;
+            this.index = index;
+            this.hasRow = readRow();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return hasRow;
+    }
+
+    @Override
+    public FormRecord next() {
+        if (!hasRow)
+            throw new NoSuchElementException();
+        Map<String, String> answers = new HashMap<>();
+        for (int i = 0; i < mapping.columns.length; i++) {
+            int column = mapping.columns[i];
+            if (column < row.size() && !row.get(column).isEmpty())
+                answers.put(mapping.keys[i], row.get(column));
+        }
+        // Sem coluna de id: a posição do registro no arquivo, a partir de 0, como no .dbf
+        String id;
+        if (mapping.idColumn < 0)
+            id = Long.toString(index);
+        else
+            id = mapping.idColumn < row.size() ? row.get(mapping.idColumn) : "";
+        index++;
+        FormRecord record = new FormRecord(id, answers);
+        try {
+            hasRow = readRow();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return record;
+    }
+
+    /** Lê a próxima linha não vazia em {@code row}; falso no fim do arquivo. */
+    private boolean readRow() throws IOException {
+        boolean read;
+        do {
+            offset = position;
+            read = readLine();
+        } while (read && row.size() == 1 && row.get(0).isEmpty());
+        return read;
+    }
+
+    private boolean readLine() throws IOException {
+        row.clear();
+        value.setLength(0);
+        boolean quoted = false;
+        boolean any = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            any = true;
+            count(c);
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        count('"');
+                        value.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    value.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                row.add(value.toString().trim());
+                value.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                value.append((char) c);
+            }
+        }
+        if (!any)
+            return false;
+        row.add(value.toString().trim());
+        return true;
+    }
+
+    /** Soma à posição os bytes do caractere na codificação do arquivo. */
+    private void count(int c) {
+        if (charBytes > 0)
+            position += charBytes;
+        else if (charBytes == 0)
+            // Cada metade de um par substituto vale 2 dos 4 bytes
+            position += c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate((char) c) ? 2 : 3;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
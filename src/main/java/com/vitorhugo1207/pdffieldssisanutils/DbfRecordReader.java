@@ -0,0 +1,183 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Lê um arquivo dBase (.dbf) exportado pelo SINAN por memória mapeada.
+ * <p>
+ * O arquivo é mapeado em janelas de tamanho fixo, então arquivos maiores que
+ * 2 GB também funcionam e só a janela atual ocupa espaço de endereçamento.
+ * Registros marcados como apagados são pulados. As exportações do SINAN
+ * costumam usar ISO-8859-1/CP850 como codificação.
+ */
+public final class DbfRecordReader implements RecordSource {
+
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final Charset charset;
+    private final long recordCount;
+    private final int headerSize;
+    private final int recordSize;
+    private final List<String> columnNames;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final ColumnMapping.Bound mapping;
+
+    private final byte[] buffer;
+    private MappedByteBuffer window;
+    private long windowStart = -1;
+    private long windowEnd = -1;
+
+    private long index;
+    private long end;
+    private boolean hasRecord;
+
+    public DbfRecordReader(Path file, ColumnMapping mapping, Charset charset) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.charset = charset;
+        try {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), 32));
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            this.recordCount = header.getInt(4) & 0xFFFFFFFFL;
+            this.headerSize = header.getShort(8) & 0xFFFF;
+            this.recordSize = header.getShort(10) & 0xFFFF;
+
+            // Descritores de campo: 32 bytes cada, terminados por 0x0D
+            MappedByteBuffer fields = channel.map(FileChannel.MapMode.READ_ONLY, 32, headerSize - 32);
+            List<String> names = new ArrayList<>();
+            List<Integer> lens = new ArrayList<>();
+            for (int pos = 0; pos + 32 <= fields.limit() && fields.get(pos) != 0x0D; pos += 32) {
+                byte[] name = new byte[11];
+                fields.get(pos, name);
+                int len = 0;
+                while (len < name.length && name[len] != 0)
+                    len++;
+                names.add(new String(name, 0, len, charset).trim());
+                lens.add(fields.get(pos + 16) & 0xFF);
+            }
+            this.columnNames = Collections.unmodifiableList(names);
+            this.offsets = new int[names.size()];
+            this.lengths = new int[names.size()];
+            int offset = 1; // byte 0 do registro é a marca de apagado
+            for (int i = 0; i < names.size(); i++) {
+                offsets[i] = offset;
+                lengths[i] = lens.get(i);
+                offset += lengths[i];
+            }
+            this.mapping = mapping.bind(columnNames);
+            this.buffer = new byte[recordSize];
+            this.end = recordCount;
+            this.hasRecord = advance();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Número de registros declarado no cabeçalho (inclui apagados). */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * Limita a leitura aos registros de {@code start} (inclusive) a {@code end}
+     * (exclusive), pela posição no arquivo. Deve ser chamado antes da leitura.
+     */
+    public void setRange(long start, long end) throws IOException {
+        this.index = Math.max(0, start);
+        this.end = Math.min(end, recordCount);
+        try {
+            this.hasRecord = advance();
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return hasRecord;
+    }
+
+    @Override
+    public FormRecord next() {
+        if (!hasRecord)
+            throw new NoSuchElementException();
+        Map<String, String> answers = new HashMap<>();
+        for (int i = 0; i < mapping.columns.length; i++) {
+            String value = field(mapping.columns[i]);
+            if (!value.isEmpty())
+                answers.put(mapping.keys[i], value);
+        }
+        // Sem coluna de id: a posição do registro no arquivo, a partir de 0
+        String id = mapping.idColumn >= 0 ? field(mapping.idColumn) : Long.toString(index);
+        FormRecord record = new FormRecord(id, answers);
+        index++;
+        hasRecord = advance();
+        return record;
+    }
+
+    /** Carrega em {@code buffer} o próximo registro não apagado. */
+    private boolean advance() {
+        try {
+            while (index < end) {
+                long position = headerSize + index * (long) recordSize;
+                if (position + recordSize > channel.size())
+                    return false;
+                if (position < windowStart || position + recordSize > windowEnd)
+                    map(position);
+                window.get((int) (position - windowStart), buffer);
+                if (buffer[0] == 0x1A) // fim de arquivo
+                    return false;
+                if (buffer[0] != '*')
+                    return true;
+                index++;
+            }
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void map(long position) throws IOException {
+        // A janela sempre contém registros inteiros
+        long size = Math.min((long) (WINDOW_SIZE / recordSize) * recordSize, channel.size() - position);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        windowStart = position;
+        windowEnd = position + size;
+    }
+
+    private String field(int column) {
+        int start = offsets[column];
+        int stop = start + lengths[column];
+        while (start < stop && buffer[start] == ' ')
+            start++;
+        while (stop > start && (buffer[stop - 1] == ' ' || buffer[stop - 1] == 0))
+            stop--;
+        return new String(buffer, start, stop - start, charset);
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
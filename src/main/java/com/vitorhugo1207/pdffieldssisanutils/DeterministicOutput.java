@@ -0,0 +1,179 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.pdf.PdfDate;
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Saída determinística: as mesmas respostas geram sempre os mesmos bytes.
+ * <p>
+ * O iText grava a data de criação e um {@code /ID} aleatório em todo
+ * documento, e sorteia o prefixo ({@code ABCDEF+}) de cada subconjunto de
+ * fonte embutida ({@link EmbeddedFonts}). {@link #enable(PdfWriter)} fixa as
+ * datas, {@link #fixSubsetTags(byte[])} troca os prefixos por um hash da fonte
+ * e dos glifos usados e {@link #fixDocumentId(byte[])} troca o {@code /ID} por
+ * um hash do conteúdo, sempre com o mesmo tamanho para não deslocar a tabela
+ * de referências.
+ */
+public final class DeterministicOutput {
+
+    // 01/01/2000 00:00 UTC
+    private static final Calendar FIXED_DATE;
+
+    static {
+        FIXED_DATE = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        FIXED_DATE.clear();
+        FIXED_DATE.set(2000, Calendar.JANUARY, 1);
+    }
+
+    private static final byte[] ID_MARKER = "/ID [<".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BASE_FONT = "/BaseFont/".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FONT_NAME = "/FontName/".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CID_FONT = "/Subtype/CIDFontType2".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] WIDTHS = "/W ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END_OBJECT = "endobj".getBytes(StandardCharsets.US_ASCII);
+    private static final int TAG_LENGTH = 6;
+
+    private DeterministicOutput() {
+    }
+
+    /** Fixa a data de criação e de modificação. Pode ser chamado até {@code document.close()}. */
+    public static void enable(PdfWriter writer) {
+        PdfDictionary info = writer.getInfo();
+        PdfDate date = new PdfDate(FIXED_DATE);
+        info.put(PdfName.CREATIONDATE, date);
+        info.put(PdfName.MODDATE, date);
+    }
+
+    /**
+     * Substitui, no próprio array, o prefixo de seis letras de cada fonte
+     * subconjunto ({@code /BaseFont} e {@code /FontName}) por letras tiradas do
+     * MD5 do nome da fonte e do seu {@code /W}, que lista os glifos usados com
+     * suas larguras. Deve ser chamado antes de {@link #fixDocumentId(byte[])}.
+     * Retorna o mesmo array.
+     */
+    public static byte[] fixSubsetTags(byte[] pdf) {
+        // O dicionário CIDFontType2 tem o /W; o prefixo dele vale para os demais
+        Map<String, byte[]> tags = new HashMap<>();
+        for (int at = indexOf(pdf, CID_FONT, 0); at >= 0; at = indexOf(pdf, CID_FONT, at + 1)) {
+            int tag = at + CID_FONT.length + BASE_FONT.length;
+            if (!startsWith(pdf, at + CID_FONT.length, BASE_FONT) || !isTag(pdf, tag))
+                continue;
+            int end = indexOf(pdf, END_OBJECT, tag);
+            if (end < 0)
+                continue;
+            int widths = indexOf(pdf, WIDTHS, tag);
+            MessageDigest md5 = md5();
+            md5.update(pdf, tag + TAG_LENGTH, nameEnd(pdf, tag + TAG_LENGTH) - tag - TAG_LENGTH);
+            if (widths >= 0 && widths < end)
+                md5.update(pdf, widths, end - widths);
+            byte[] digest = md5.digest();
+            byte[] replacement = new byte[TAG_LENGTH];
+            for (int i = 0; i < TAG_LENGTH; i++)
+                replacement[i] = (byte) ('A' + (digest[i] & 0xff) % 26);
+            tags.put(new String(pdf, tag, TAG_LENGTH, StandardCharsets.US_ASCII), replacement);
+        }
+        if (tags.isEmpty())
+            return pdf;
+        for (byte[] key : new byte[][] {BASE_FONT, FONT_NAME}) {
+            for (int at = indexOf(pdf, key, 0); at >= 0; at = indexOf(pdf, key, at + 1)) {
+                int tag = at + key.length;
+                if (!isTag(pdf, tag))
+                    continue;
+                byte[] replacement = tags.get(new String(pdf, tag, TAG_LENGTH, StandardCharsets.US_ASCII));
+                if (replacement != null)
+                    System.arraycopy(replacement, 0, pdf, tag, TAG_LENGTH);
+            }
+        }
+        return pdf;
+    }
+
+    /** Se o nome que começa em {@code pos} tem prefixo de subconjunto ({@code ABCDEF+}). */
+    private static boolean isTag(byte[] pdf, int pos) {
+        if (pos + TAG_LENGTH >= pdf.length || pdf[pos + TAG_LENGTH] != '+')
+            return false;
+        for (int i = 0; i < TAG_LENGTH; i++)
+            if (pdf[pos + i] < 'A' || pdf[pos + i] > 'Z')
+                return false;
+        return true;
+    }
+
+    /** Fim de um nome PDF que começa em {@code from}. */
+    private static int nameEnd(byte[] pdf, int from) {
+        int pos = from;
+        while (pos < pdf.length && "/[]<>() \r\n".indexOf(pdf[pos]) < 0)
+            pos++;
+        return pos;
+    }
+
+    /**
+     * Substitui, no próprio array, os dois identificadores do {@code /ID} do
+     * trailer pelo MD5 dos bytes que os antecedem. Retorna o mesmo array.
+     */
+    public static byte[] fixDocumentId(byte[] pdf) {
+        int start = lastIndexOf(pdf, ID_MARKER);
+        if (start < 0)
+            return pdf;
+        MessageDigest md5 = md5();
+        md5.update(pdf, 0, start);
+        byte[] digest = md5.digest();
+        // /ID [<primeiro><segundo>]
+        int pos = start + ID_MARKER.length;
+        for (int part = 0; part < 2; part++) {
+            int i = 0;
+            while (pos < pdf.length && pdf[pos] != '>') {
+                int b = digest[(i / 2) % digest.length] & 0xff;
+                pdf[pos++] = HEX[i % 2 == 0 ? b >> 4 : b & 0xf];
+                i++;
+            }
+            pos += 2; // "><"
+        }
+        return pdf;
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean startsWith(byte[] data, int at, byte[] marker) {
+        if (at + marker.length > data.length)
+            return false;
+        for (int j = 0; j < marker.length; j++)
+            if (data[at + j] != marker[j])
+                return false;
+        return true;
+    }
+
+    private static int indexOf(byte[] data, byte[] marker, int from) {
+        for (int i = from; i <= data.length - marker.length; i++)
+            if (startsWith(data, i, marker))
+                return i;
+        return -1;
+    }
+
+    private static int lastIndexOf(byte[] data, byte[] marker) {
+        outer:
+        for (int i = data.length - marker.length; i >= 0; i--) {
+            for (int j = 0; j < marker.length; j++)
+                if (data[i + j] != marker[j])
+                    continue outer;
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,81 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.pdf.BaseFont;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fontes TrueType embutidas, carregadas uma vez por processo.
+ * <p>
+ * Cada arquivo é lido e analisado na primeira chamada de {@link #get(String)};
+ * a {@link BaseFont} resultante (Identity-H, Unicode) é compartilhada por todas
+ * as threads e documentos, já que o iText só lê dela. O subconjunto é montado
+ * por documento: cada PDF embute apenas os glifos que usou.
+ * <p>
+ * {@link PdfFieldUtils} usa as fontes de {@code -Dsinan.font=<arquivo.ttf>} e
+ * {@code -Dsinan.font.bold=<arquivo.ttf>} quando definidas (sem o negrito, o
+ * iText simula o negrito da fonte normal). Sem elas, continua com a Helvetica
+ * padrão não embutida. O arquivo é procurado no disco e depois no classpath.
+ */
+public final class EmbeddedFonts {
+
+    /** Propriedade do sistema com o arquivo da fonte normal. */
+    public static final String FONT_PROPERTY = "sinan.font";
+    /** Propriedade do sistema com o arquivo da fonte em negrito. */
+    public static final String BOLD_FONT_PROPERTY = "sinan.font.bold";
+
+    private static final Map<String, BaseFont> CACHE = new ConcurrentHashMap<>();
+
+    private EmbeddedFonts() {
+    }
+
+    /** Fonte do arquivo (ou recurso do classpath), analisada uma única vez. */
+    public static BaseFont get(String file) {
+        return CACHE.computeIfAbsent(file, EmbeddedFonts::load);
+    }
+
+    /** Fonte normal configurada, ou {@code null} para usar a Helvetica padrão. */
+    public static BaseFont regular() {
+        String file = System.getProperty(FONT_PROPERTY);
+        return file != null ? get(file) : null;
+    }
+
+    /** Fonte em negrito configurada, ou {@code null}. */
+    public static BaseFont bold() {
+        String file = System.getProperty(BOLD_FONT_PROPERTY);
+        return file != null ? get(file) : null;
+    }
+
+    private static BaseFont load(String file) {
+        try {
+            // Com os bytes em memória o iText não volta ao arquivo ao gravar o subconjunto
+            BaseFont font = BaseFont.createFont(file, BaseFont.IDENTITY_H, BaseFont.EMBEDDED,
+                    BaseFont.NOT_CACHED, read(file), null);
+            font.setSubset(true);
+            return font;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao ler a fonte " + file, e);
+        } catch (DocumentException e) {
+            throw new IllegalArgumentException("Fonte inválida: " + file, e);
+        }
+    }
+
+    private static byte[] read(String file) throws IOException {
+        Path path = Paths.get(file);
+        if (Files.exists(path))
+            return Files.readAllBytes(path);
+        try (InputStream in = EmbeddedFonts.class.getClassLoader().getResourceAsStream(file)) {
+            if (in == null)
+                throw new IOException("Fonte não encontrada: " + file);
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.ANSWER_CELL_HEIGHT;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.CHECKBOX_TEXT_OFFSET;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.CONTENT_FONT_SIZE;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.CONTENT_PADDING;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.CONTENT_PADDING_TOP;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.HEADER_HEIGHT;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.HEADER_PADDING_TOP;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.LEGEND_FONT_SIZE;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.LEGEND_PADDING_BOTTOM;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.LINE_WIDTH;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.MAIN_BOTTOM_PADDING;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.OPTION_INDENT;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.OPTION_ROW_HEIGHT;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.OTHER_GAP;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.TEXT_LINE_OFFSET;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.TITLE_FONT_SIZE;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.TITLE_INDENT;
+
+import com.itextpdf.text.DocumentException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Layout de um {@link FormPlan} desenhado com as primitivas de um
+ * {@link RenderBackend.Canvas}: a mesma geometria das tabelas de
+ * {@link PdfFieldUtils} (medidas das constantes de lá) e a paginação de
+ * {@link PageSpace}, a mesma de {@link PagePacker}. A página é A4 com margens
+ * de 20pt, como no {@code Document} padrão.
+ * <p>
+ * Uma linha mais alta que a página é dividida entre páginas quando o excesso
+ * vem de campos descritivos: o texto continua no topo da página seguinte, com
+ * a borda em U repetida em cada trecho. Campos {@code field.N.split} são
+ * divididos entre as linhas do grid, com o cabeçalho repetido em cada página
+ * (como {@link SplittableOptionsField}). Qualquer outro campo que não caiba em
+ * uma página falha com {@link IllegalArgumentException}.
+ * <p>
+ * Não gera esqueleto, AcroForm nem saída compacta; para esses casos use o
+ * layout de tabelas de {@link FormPlan#renderer()}.
+ */
+final class FieldLayout {
+
+    static final float PAGE_WIDTH = 595f;
+    static final float PAGE_HEIGHT = 842f;
+    private static final float MARGIN = 20f;
+    // Altura de Paragraph(" ") em PagePacker#addSpace
+    private static final float SPACE = 18f;
+
+    // Linhas de base em relação ao topo do campo. Títulos centralizados no
+    // cabeçalho (descritivo e opções) ou colados no topo (legenda).
+    private static final float TITLE_BASELINE = HEADER_HEIGHT / 2 + TITLE_FONT_SIZE / 2;
+    private static final float TOP_TITLE_BASELINE = HEADER_PADDING_TOP + TITLE_FONT_SIZE;
+    private static final float CONTENT_TOP = HEADER_HEIGHT + CONTENT_PADDING_TOP;
+    private static final float LEGEND_LINE_HEIGHT = LEGEND_FONT_SIZE + LEGEND_PADDING_BOTTOM;
+    // Espaço abaixo da última linha de texto de um campo descritivo
+    private static final float CONTENT_BOTTOM = CONTENT_PADDING + MAIN_BOTTOM_PADDING;
+
+    private final RenderBackend.Canvas canvas;
+    private final PageSpace space = new PageSpace(PAGE_HEIGHT - 2 * MARGIN);
+
+    private FieldLayout(RenderBackend.Canvas canvas) {
+        this.canvas = canvas;
+    }
+
+    static RecordRenderer<FormRecord> renderer(FormPlan plan, RenderBackend backend) {
+        return RenderMetrics.instrument(plan.getFormType(), (record, out) -> {
+            RenderBackend.Canvas canvas = backend.open(out, PAGE_WIDTH, PAGE_HEIGHT);
+            new FieldLayout(canvas).render(plan, plan.decode(record));
+            canvas.close();
+        });
+    }
+
+    private void render(FormPlan plan, FormRecord record) throws DocumentException, IOException {
+        float width = PAGE_WIDTH - 2 * MARGIN;
+        for (FormPlan.Row row : plan.getRows()) {
+            List<FormPlan.Field> fields = row.getFields();
+            if (fields.size() == 1 && fields.get(0).split)
+                drawSplit(fields.get(0), record, MARGIN, width);
+            else
+                drawRow(row, record, width);
+            if (row.isSpaceAfter() && !space.takeSpace(SPACE))
+                newPage();
+        }
+    }
+
+    /** Topo da próxima linha na página atual. */
+    private float top() {
+        return MARGIN + space.getRemaining();
+    }
+
+    private void newPage() throws DocumentException, IOException {
+        canvas.newPage();
+        space.newPage();
+    }
+
+    private void drawRow(FormPlan.Row row, FormRecord record, float width) throws DocumentException, IOException {
+        List<FormPlan.Field> fields = row.getFields();
+        float[] widths = row.getWidths();
+        float total = 0;
+        for (float w : widths)
+            total += w;
+
+        float[] cellWidths = new float[fields.size()];
+        float height = 0;
+        for (int i = 0; i < cellWidths.length; i++) {
+            cellWidths[i] = width * widths[i] / total;
+            height = Math.max(height, height(fields.get(i), record, cellWidths[i]));
+        }
+
+        // Quebra a página entre linhas; só divide o campo se nem uma página inteira basta
+        if (space.breaksBefore(height))
+            newPage();
+        if (!space.fits(height)) {
+            drawSplitRow(fields, record, cellWidths);
+            return;
+        }
+        float x = MARGIN;
+        float y = top();
+        for (int i = 0; i < cellWidths.length; i++) {
+            draw(fields.get(i), record, x, y, cellWidths[i], height);
+            x += cellWidths[i];
+        }
+        space.take(height);
+    }
+
+    /**
+     * Linha mais alta que uma página inteira, começando no topo: o texto dos
+     * campos descritivos continua nas páginas seguintes e os demais campos
+     * ficam no primeiro trecho. Cada trecho tem a borda em U de cada campo,
+     * como os fragmentos de uma linha dividida pelo iText.
+     */
+    private void drawSplitRow(List<FormPlan.Field> fields, FormRecord record, float[] cellWidths)
+            throws DocumentException, IOException {
+        List<List<String>> texts = new ArrayList<>(fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+            FormPlan.Field field = fields.get(i);
+            if (field.type == FormPlan.FieldType.DESCRIPTIVE) {
+                texts.add(wrap(text(record.get(field.number)), cellWidths[i] - 2 * CONTENT_PADDING));
+            } else if (height(field, record, cellWidths[i]) > space.getPageHeight()) {
+                throw new IllegalArgumentException("Campo " + field.number
+                        + " não cabe em uma página" + (field.type == FormPlan.FieldType.OPTIONS
+                                ? "; use field." + field.number + ".split" : ""));
+            } else {
+                texts.add(null);
+            }
+        }
+
+        int[] drawn = new int[fields.size()];
+        boolean first = true;
+        while (true) {
+            // Linhas de texto que cabem neste trecho, acima do espaço de baixo
+            float contentTop = first ? CONTENT_TOP : CONTENT_PADDING_TOP;
+            int fit = (int) Math.floor((space.getRemaining() - contentTop - CONTENT_BOTTOM) / CONTENT_FONT_SIZE);
+            boolean last = true;
+            float height = 0;
+            for (int i = 0; i < fields.size(); i++) {
+                List<String> lines = texts.get(i);
+                if (lines == null) {
+                    if (first)
+                        height = Math.max(height, height(fields.get(i), record, cellWidths[i]));
+                    continue;
+                }
+                int count = Math.min(fit, lines.size() - drawn[i]);
+                if (drawn[i] + count < lines.size())
+                    last = false;
+                else if (count > 0)
+                    height = Math.max(height, contentTop + count * CONTENT_FONT_SIZE + CONTENT_BOTTOM);
+                else if (first)
+                    height = Math.max(height, Math.max(HEADER_HEIGHT + MAIN_BOTTOM_PADDING, fields.get(i).minHeight));
+            }
+            if (!last)
+                height = space.getRemaining();
+            height = Math.max(height, MAIN_BOTTOM_PADDING);
+
+            float x = MARGIN;
+            float y = top();
+            for (int i = 0; i < fields.size(); i++) {
+                FormPlan.Field field = fields.get(i);
+                List<String> lines = texts.get(i);
+                if (lines == null) {
+                    if (first)
+                        draw(field, record, x, y, cellWidths[i], height);
+                    else
+                        canvas.border(x, y - height, x + cellWidths[i], y);
+                } else {
+                    canvas.border(x, y - height, x + cellWidths[i], y);
+                    if (first) {
+                        numberBox(field, x, y);
+                        canvas.title(x + TITLE_INDENT, y - TITLE_BASELINE, field.title);
+                    }
+                    int count = Math.min(fit, lines.size() - drawn[i]);
+                    for (int k = 0; k < count; k++)
+                        canvas.text(x + CONTENT_PADDING, y - contentTop - (k + 1) * CONTENT_FONT_SIZE,
+                                CONTENT_FONT_SIZE, lines.get(drawn[i] + k));
+                    drawn[i] += count;
+                }
+                x += cellWidths[i];
+            }
+            if (last) {
+                space.take(height);
+                return;
+            }
+            newPage();
+            first = false;
+        }
+    }
+
+    /**
+     * Campo de opções dividido entre páginas, linha a linha do grid, com o
+     * cabeçalho repetido no topo de cada página, como {@link PagePacker} faz
+     * com {@link SplittableOptionsField}.
+     */
+    private void drawSplit(FormPlan.Field field, FormRecord record, float x, float width)
+            throws DocumentException, IOException {
+        int rows = SplittableOptionsField.rowCount(field.options.size(), field.columns);
+        if (space.breaksBefore(HEADER_HEIGHT + splitRowHeight(field, 0)))
+            newPage();
+        float segmentTop = top();
+        optionsHeader(field, x, segmentTop);
+        space.take(HEADER_HEIGHT);
+        for (int row = 0; row < rows; row++) {
+            float height = splitRowHeight(field, row);
+            if (!space.fits(height)) {
+                // Fecha as laterais nesta página e repete o cabeçalho na próxima
+                float adj = LINE_WIDTH / 2;
+                canvas.line(x + adj, segmentTop, x + adj, top());
+                canvas.line(x + width - adj, segmentTop, x + width - adj, top());
+                newPage();
+                segmentTop = top();
+                optionsHeader(field, x, segmentTop);
+                space.take(HEADER_HEIGHT);
+            }
+            optionGrid(field, record, x, top(), width, row, row + 1, 0);
+            space.take(height);
+        }
+        canvas.border(x, top(), x + width, segmentTop);
+    }
+
+    private static float splitRowHeight(FormPlan.Field field, int row) {
+        return SplittableOptionsField.rowHeight(field.options.size(), field.columns, field.hasOther, row);
+    }
+
+    // --- MEDIDAS ---
+
+    private float height(FormPlan.Field field, FormRecord record, float width) {
+        switch (field.type) {
+            case DESCRIPTIVE:
+                // Sem resposta, a célula do texto não ocupa altura
+                int lines = wrap(text(record.get(field.number)), width - 2 * CONTENT_PADDING).size();
+                float height = lines == 0 ? HEADER_HEIGHT + MAIN_BOTTOM_PADDING
+                        : CONTENT_TOP + lines * CONTENT_FONT_SIZE + CONTENT_BOTTOM;
+                return Math.max(height, field.minHeight);
+            case LEGEND:
+                float left = HEADER_HEIGHT + field.legendLines.size() * LEGEND_LINE_HEIGHT;
+                return Math.max(left, ANSWER_CELL_HEIGHT) + MAIN_BOTTOM_PADDING;
+            default:
+                return HEADER_HEIGHT + MAIN_BOTTOM_PADDING
+                        + PdfFieldUtils.OptionGridEvent.height(field.options.size(), field.columns, field.hasOther);
+        }
+    }
+
+    /**
+     * Quebra o texto em linhas de até {@code width} pontos na fonte do
+     * conteúdo, como o iText: depois de espaços e hífens, em cada {@code '\n'}
+     * e, se uma palavra sozinha não couber, no caractere que passar da largura.
+     */
+    private List<String> wrap(String text, float width) {
+        List<String> lines = new ArrayList<>();
+        if (text.isEmpty())
+            return lines;
+        // Como no iText, quebras no fim do texto não abrem linhas vazias
+        for (String paragraph : text.split("\r?\n")) {
+            StringBuilder line = new StringBuilder();
+            int start = 0;
+            while (start < paragraph.length()) {
+                // Próximo pedaço: até o espaço ou hífen, inclusive
+                int end = start;
+                while (end < paragraph.length() && !isBreak(paragraph.charAt(end)))
+                    end++;
+                String piece = paragraph.substring(start, Math.min(end + 1, paragraph.length()));
+                start += piece.length();
+                if (fits(line + piece, width)) {
+                    line.append(piece);
+                    continue;
+                }
+                if (line.length() > 0) {
+                    lines.add(trimEnd(line));
+                    line.setLength(0);
+                    if (piece.startsWith(" "))
+                        piece = piece.substring(1);
+                }
+                // Palavra mais larga que a linha: quebra no caractere
+                while (!fits(piece, width) && piece.length() > 1) {
+                    int n = 1;
+                    while (n < piece.length() && fits(piece.substring(0, n + 1), width))
+                        n++;
+                    lines.add(piece.substring(0, n));
+                    piece = piece.substring(n);
+                }
+                line.append(piece);
+            }
+            lines.add(trimEnd(line));
+        }
+        return lines;
+    }
+
+    private static boolean isBreak(char c) {
+        return c == ' ' || c == '-';
+    }
+
+    /** Se o texto cabe na largura, sem contar os espaços do fim. */
+    private boolean fits(String text, float width) {
+        return canvas.textWidth(false, CONTENT_FONT_SIZE, trimEnd(text)) <= width;
+    }
+
+    private static String trimEnd(CharSequence text) {
+        int end = text.length();
+        while (end > 0 && text.charAt(end - 1) == ' ')
+            end--;
+        return text.subSequence(0, end).toString();
+    }
+
+    private static String text(String value) {
+        return value != null ? value : "";
+    }
+
+    // --- DESENHO ---
+
+    private void draw(FormPlan.Field field, FormRecord record, float x, float top, float width, float height) {
+        canvas.border(x, top - height, x + width, top);
+
+        switch (field.type) {
+            case DESCRIPTIVE:
+                numberBox(field, x, top);
+                canvas.title(x + TITLE_INDENT, top - TITLE_BASELINE, field.title);
+                List<String> lines = wrap(text(record.get(field.number)), width - 2 * CONTENT_PADDING);
+                for (int i = 0; i < lines.size(); i++)
+                    canvas.text(x + CONTENT_PADDING, top - CONTENT_TOP - (i + 1) * CONTENT_FONT_SIZE,
+                            CONTENT_FONT_SIZE, lines.get(i));
+                break;
+            case LEGEND:
+                numberBox(field, x, top);
+                canvas.title(x + TITLE_INDENT, top - TOP_TITLE_BASELINE, field.title);
+                for (int i = 0; i < field.legendLines.size(); i++)
+                    canvas.text(x + TITLE_INDENT, top - HEADER_HEIGHT - LEGEND_FONT_SIZE - i * LEGEND_LINE_HEIGHT,
+                            LEGEND_FONT_SIZE, field.legendLines.get(i));
+                canvas.answerBox(x + width * 0.85f + LINE_WIDTH / 2, top - LINE_WIDTH / 2,
+                        text(record.get(field.number)));
+                break;
+            default:
+                optionsHeader(field, x, top);
+                // Campo vizinho mais alto estende a última linha do grid
+                float extra = Math.max(0, height - height(field, record, width));
+                optionGrid(field, record, x, top - HEADER_HEIGHT, width, 0,
+                        SplittableOptionsField.rowCount(field.options.size(), field.columns), extra);
+        }
+    }
+
+    private void numberBox(FormPlan.Field field, float x, float top) {
+        canvas.numberBox(x + LINE_WIDTH / 2, top - LINE_WIDTH / 2, field.number);
+    }
+
+    /** Quadrado do número, título e legenda na mesma linha. */
+    private void optionsHeader(FormPlan.Field field, float x, float top) {
+        numberBox(field, x, top);
+        canvas.title(x + TITLE_INDENT, top - TITLE_BASELINE, field.title);
+        String legend = field.legendLines.isEmpty() ? "" : field.legendLines.get(0);
+        canvas.text(x + TITLE_INDENT + canvas.textWidth(true, TITLE_FONT_SIZE, field.title), top - TITLE_BASELINE,
+                LEGEND_FONT_SIZE, "   " + legend);
+    }
+
+    /**
+     * Linhas {@code [fromRow, toRow)} do grid, a partir de {@code top}, com a
+     * geometria de {@link PdfFieldUtils.OptionGridEvent}; "Outros" vem junto
+     * da última linha.
+     */
+    private void optionGrid(FormPlan.Field field, FormRecord record, float x, float top, float width, int fromRow,
+            int toRow, float extra) {
+        float left = x + OPTION_INDENT;
+        float colWidth = (x + width - left) / field.columns;
+        float boxWidth = colWidth * 0.15f;
+        float labelWidth = colWidth * 0.85f - 4f;
+        int size = Math.min(field.options.size(), toRow * field.columns);
+        int rows = SplittableOptionsField.rowCount(field.options.size(), field.columns);
+
+        for (int i = fromRow * field.columns; i < size; i++) {
+            float optionLeft = left + (i % field.columns) * colWidth;
+            int row = i / field.columns;
+            float rowTop = top - (row - fromRow) * OPTION_ROW_HEIGHT;
+            float rowHeight = OPTION_ROW_HEIGHT + (!field.hasOther && row == rows - 1 ? extra : 0);
+            option(optionLeft, rowTop, rowHeight, boxWidth, labelWidth, field.options.get(i),
+                    text(record.get(field.optionKeys[i])));
+        }
+
+        if (field.hasOther && toRow == rows) {
+            float rowTop = top - (rows - fromRow) * OPTION_ROW_HEIGHT - OTHER_GAP;
+            float rowHeight = OPTION_ROW_HEIGHT + extra;
+            option(left, rowTop, rowHeight, boxWidth, labelWidth, "Outros:", "");
+            if (field.columns > 1) {
+                float rowBottom = rowTop - rowHeight;
+                canvas.line(left + colWidth, rowBottom, x + width, rowBottom);
+                String other = text(record.get(field.otherKey));
+                if (!other.isEmpty())
+                    canvas.text(left + colWidth + 3f, rowTop - rowHeight / 2 - TEXT_LINE_OFFSET, CONTENT_FONT_SIZE,
+                            other);
+            }
+        }
+    }
+
+    private void option(float x, float rowTop, float rowHeight, float boxWidth, float labelWidth, String label,
+            String code) {
+        float centerY = rowTop - rowHeight / 2;
+        canvas.checkbox(x + boxWidth / 2, centerY, code);
+
+        // Rótulos que não cabem na coluna têm a fonte reduzida até caber
+        float size = LEGEND_FONT_SIZE;
+        float labelTextWidth = canvas.textWidth(false, size, label);
+        if (labelTextWidth > labelWidth)
+            size = Math.round(size * labelWidth / labelTextWidth * 10) / 10f;
+        canvas.text(x + boxWidth + 2f, centerY - CHECKBOX_TEXT_OFFSET, size, label);
+    }
+}
@@ -0,0 +1,410 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.pdf.PdfPCell;
+import com.itextpdf.text.pdf.PdfPTable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/**
+ * Layout de um formulário já compilado a partir da definição declarativa
+ * (ver {@link FormPlans}). É imutável: para cada registro, apenas as respostas
+ * são ligadas aos campos já definidos.
+ */
+public final class FormPlan {
+
+    /** Tipos de campo de {@link PdfFieldUtils}. */
+    public enum FieldType {
+        /** {@link PdfFieldUtils#createDescriptiveField} */
+        DESCRIPTIVE,
+        /** {@link PdfFieldUtils#createFieldWithLegendAndAnswerBox} */
+        LEGEND,
+        /** {@link PdfFieldUtils#createMultipleOptionsField} */
+        OPTIONS
+    }
+
+    /** Um campo da definição. */
+    public static final class Field {
+        final FieldType type;
+        final String number;
+        final String title;
+        final List<String> legendLines;
+        final List<String> options;
+        final int columns;
+        final float minHeight;
+        final boolean hasOther;
+        final boolean flat;
+        final boolean split;
+        final AnswerCodes codes;
+        // Chaves das opções pré-calculadas para não montar strings por registro
+        final String[] optionKeys;
+        final String otherKey;
+
+        Field(FieldType type, String number, String title, List<String> legendLines, List<String> options,
+                int columns, float minHeight, boolean hasOther, boolean flat, boolean split, AnswerCodes codes) {
+            this.type = type;
+            this.number = number;
+            this.title = title;
+            this.legendLines = Collections.unmodifiableList(new ArrayList<>(legendLines));
+            this.options = Collections.unmodifiableList(new ArrayList<>(options));
+            this.columns = columns;
+            this.minHeight = minHeight;
+            this.hasOther = hasOther;
+            this.flat = flat;
+            this.split = split;
+            this.codes = codes;
+            this.optionKeys = new String[options.size()];
+            for (int i = 0; i < optionKeys.length; i++)
+                optionKeys[i] = AnswerKeys.option(number, i);
+            this.otherKey = AnswerKeys.other(number);
+        }
+
+        public FieldType getType() {
+            return type;
+        }
+
+        public String getNumber() {
+            return number;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public List<String> getLegendLines() {
+            return legendLines;
+        }
+
+        public List<String> getOptions() {
+            return options;
+        }
+
+        /** Tabela usada para codificar as respostas do campo. */
+        public AnswerCodes getCodes() {
+            return codes;
+        }
+
+        /** Campo de opções divisível entre páginas ({@code split = true}). */
+        SplittableOptionsField buildSplittable(FormRecord record) {
+            String legend = legendLines.isEmpty() ? "" : legendLines.get(0);
+            byte[] coded = record.getCoded(number);
+            if (coded != null)
+                return PdfFieldUtils.createSplittableOptionsField(number, title, legend, options, coded, codes,
+                        columns, hasOther, record.get(otherKey));
+            List<String> answers = new ArrayList<>(optionKeys.length);
+            for (String key : optionKeys) {
+                String answer = record.get(key);
+                answers.add(answer != null ? answer : "");
+            }
+            return PdfFieldUtils.createSplittableOptionsField(number, title, legend, options, answers, columns,
+                    hasOther, record.get(otherKey));
+        }
+
+        PdfPCell build(FormRecord record, float width) {
+            switch (type) {
+                case DESCRIPTIVE:
+                    return PdfFieldUtils.createDescriptiveField(number, title, record.get(number), width, minHeight);
+                case LEGEND:
+                    byte[] code = record.getCoded(number);
+                    if (code != null)
+                        return PdfFieldUtils.createFieldWithLegendAndAnswerBox(number, title, legendLines,
+                                code.length > 0 ? code[0] : AnswerCodes.BLANK, codes, width);
+                    return PdfFieldUtils.createFieldWithLegendAndAnswerBox(number, title, legendLines,
+                            record.get(number), width);
+                default:
+                    String legend = legendLines.isEmpty() ? "" : legendLines.get(0);
+                    byte[] coded = record.getCoded(number);
+                    if (coded != null) {
+                        if (flat)
+                            return PdfFieldUtils.createMultipleOptionsFieldFlat(number, title, legend, options,
+                                    coded, codes, columns, width, hasOther, record.get(otherKey));
+                        return PdfFieldUtils.createMultipleOptionsField(number, title, legend, options, coded,
+                                codes, columns, width, hasOther, record.get(otherKey));
+                    }
+                    List<String> answers = new ArrayList<>(optionKeys.length);
+                    for (String key : optionKeys) {
+                        String answer = record.get(key);
+                        answers.add(answer != null ? answer : "");
+                    }
+                    if (flat)
+                        return PdfFieldUtils.createMultipleOptionsFieldFlat(number, title, legend, options, answers,
+                                columns, width, hasOther, record.get(otherKey));
+                    return PdfFieldUtils.createMultipleOptionsField(number, title, legend, options, answers,
+                            columns, width, hasOther, record.get(otherKey));
+            }
+        }
+    }
+
+    /** Uma linha de campos lado a lado ({@link PdfFieldUtils#createResponsiveRow}). */
+    public static final class Row {
+        final List<Field> fields;
+        final float[] widths;
+        final boolean spaceAfter;
+        // Números dos campos, para as medidas de layout
+        final String label;
+
+        Row(List<Field> fields, float[] widths, boolean spaceAfter) {
+            this.fields = Collections.unmodifiableList(new ArrayList<>(fields));
+            this.widths = widths.clone();
+            this.spaceAfter = spaceAfter;
+            StringBuilder numbers = new StringBuilder();
+            for (Field field : fields)
+                numbers.append(numbers.length() > 0 ? "," : "").append(field.number);
+            this.label = numbers.toString();
+        }
+
+        public List<Field> getFields() {
+            return fields;
+        }
+
+        public float[] getWidths() {
+            return widths.clone();
+        }
+
+        public boolean isSpaceAfter() {
+            return spaceAfter;
+        }
+    }
+
+    private final String formType;
+    private final List<Row> rows;
+    private volatile FormSkeleton skeleton;
+    private volatile AcroFormTemplate acroForm;
+
+    FormPlan(String formType, List<Row> rows) {
+        this.formType = formType;
+        this.rows = Collections.unmodifiableList(new ArrayList<>(rows));
+    }
+
+    public String getFormType() {
+        return formType;
+    }
+
+    public List<Row> getRows() {
+        return rows;
+    }
+
+    /** Adiciona as linhas do formulário, com as respostas do registro, a um documento aberto. */
+    public void compose(Document document, FormRecord record) throws DocumentException {
+        composeRows(document, record, 0, rows.size(), null, null);
+    }
+
+    /**
+     * Como {@link #compose(Document, FormRecord)}, só com as linhas
+     * {@code [from, to)}, a partir do topo de uma página. Com {@code pages},
+     * registra a página e as alturas de cada linha, lendo a página atual de
+     * {@code pageNumber} ({@code PdfWriter::getPageNumber}).
+     */
+    void composeRows(Document document, FormRecord record, int from, int to, RowPages pages, IntSupplier pageNumber)
+            throws DocumentException {
+        // Quebra a página entre linhas, nunca no meio de um campo
+        PagePacker packer = new PagePacker(document);
+        if (pages != null)
+            packer.trackPages(pageNumber);
+        for (int r = from; r < to; r++) {
+            Row row = rows.get(r);
+            float[] heights;
+            if (isSplit(row)) {
+                SplittableOptionsField field = row.fields.get(0).buildSplittable(record);
+                packer.add(field, row.label);
+                heights = pages != null ? heights(field, packer.getWidth()) : null;
+            } else {
+                PdfPTable table = buildRow(row, record);
+                float height = LayoutMeasure.height(table, packer.getWidth());
+                packer.add(table, height, row.label);
+                heights = new float[] { height };
+            }
+            if (pages != null)
+                pages.record(r, packer.getFirstPage(), pageNumber.getAsInt(), packer.startedPage(), heights);
+            if (row.spaceAfter)
+                packer.addSpace(); // Espaçamento
+        }
+    }
+
+    /**
+     * Alturas da linha {@code r} com as respostas do registro, na largura
+     * {@code width}, como registradas em {@link RowPages}.
+     */
+    float[] measure(int r, FormRecord record, float width) {
+        Row row = rows.get(r);
+        if (isSplit(row))
+            return heights(row.fields.get(0).buildSplittable(record), width);
+        return new float[] { LayoutMeasure.height(buildRow(row, record), width) };
+    }
+
+    /** Linhas (em ordem) com algum campo cuja resposta mudou; vazio equivale a ausente. */
+    List<Integer> changedRows(FormRecord before, FormRecord after) {
+        List<Integer> changed = new ArrayList<>();
+        for (int r = 0; r < rows.size(); r++) {
+            for (Field field : rows.get(r).fields) {
+                if (fieldChanged(field, before, after)) {
+                    changed.add(r);
+                    break;
+                }
+            }
+        }
+        return changed;
+    }
+
+    private static boolean fieldChanged(Field field, FormRecord before, FormRecord after) {
+        if (!Arrays.equals(before.getCoded(field.number), after.getCoded(field.number)))
+            return true;
+        if (!sameAnswer(before.get(field.number), after.get(field.number))
+                || !sameAnswer(before.get(field.otherKey), after.get(field.otherKey)))
+            return true;
+        for (String key : field.optionKeys)
+            if (!sameAnswer(before.get(key), after.get(key)))
+                return true;
+        return false;
+    }
+
+    private static boolean sameAnswer(String a, String b) {
+        return (a == null || a.isEmpty()) ? (b == null || b.isEmpty()) : a.equals(b);
+    }
+
+    private static boolean isSplit(Row row) {
+        return row.fields.size() == 1 && row.fields.get(0).split;
+    }
+
+    private static PdfPTable buildRow(Row row, FormRecord record) {
+        PdfPCell[] cells = new PdfPCell[row.fields.size()];
+        for (int i = 0; i < cells.length; i++)
+            cells[i] = row.fields.get(i).build(record, row.widths[i]);
+        return PdfFieldUtils.createResponsiveRow(cells, row.widths);
+    }
+
+    private static float[] heights(SplittableOptionsField field, float width) {
+        float[] heights = new float[field.getRowCount() + 1];
+        heights[0] = field.getHeaderHeight(width);
+        for (int i = 0; i < field.getRowCount(); i++)
+            heights[i + 1] = field.getRowHeight(i);
+        return heights;
+    }
+
+    /** Renderização completa (com layout) de cada registro. */
+    public RecordRenderer<FormRecord> renderer() {
+        return RenderMetrics.instrument(formType, RecordRenderer.of(this::compose));
+    }
+
+    /** Como {@link #renderer()}, com saída determinística (ver {@link DeterministicOutput}). */
+    public RecordRenderer<FormRecord> deterministicRenderer() {
+        return RenderMetrics.instrument(formType, RecordRenderer.deterministic(this::compose));
+    }
+
+    /**
+     * Esqueleto do formulário, renderizado na primeira chamada e reaproveitado
+     * depois. Textos descritivos precisam caber na altura do campo vazio (ver
+     * {@link FormSkeleton#fits(Map)}).
+     */
+    public FormSkeleton skeleton() throws DocumentException, IOException {
+        FormSkeleton s = skeleton;
+        if (s == null) {
+            synchronized (this) {
+                s = skeleton;
+                if (s == null)
+                    skeleton = s = FormSkeleton.render(document -> compose(document, FormRecord.EMPTY));
+            }
+        }
+        return s;
+    }
+
+    /** Modelo AcroForm do formulário, gerado a partir do esqueleto na primeira chamada. */
+    public AcroFormTemplate acroFormTemplate() throws DocumentException, IOException {
+        AcroFormTemplate t = acroForm;
+        if (t == null) {
+            synchronized (this) {
+                t = acroForm;
+                if (t == null)
+                    acroForm = t = AcroFormTemplate.create(skeleton());
+            }
+        }
+        return t;
+    }
+
+    /**
+     * Preenchimento do esqueleto para cada registro, sem refazer o layout.
+     * Registros com texto descritivo maior que o campo vazio usam o layout
+     * completo, como {@link #renderer()}.
+     */
+    public RecordRenderer<FormRecord> skeletonRenderer() throws DocumentException, IOException {
+        FormSkeleton s = skeleton();
+        return RenderMetrics.instrument(formType + ":esqueleto", (record, out) -> {
+            Map<String, String> answers = decode(record).getAnswers();
+            if (s.fits(answers))
+                s.fill(answers, out);
+            else
+                RecordRenderer.of(this::compose).render(record, out);
+        });
+    }
+
+    /**
+     * Registro equivalente com as respostas dos campos com legenda e de
+     * múltipla escolha codificadas com a tabela de cada campo. Campos com
+     * alguma resposta fora da tabela continuam em texto.
+     */
+    public FormRecord encode(FormRecord record) {
+        Map<String, String> texts = new HashMap<>(record.getAnswers());
+        Map<String, byte[]> coded = new HashMap<>(record.getCodedAnswers());
+        for (Row row : rows) {
+            for (Field field : row.fields) {
+                String[] keys;
+                if (field.type == FieldType.LEGEND)
+                    keys = new String[] { field.number };
+                else if (field.type == FieldType.OPTIONS)
+                    keys = field.optionKeys;
+                else
+                    continue;
+                byte[] values = new byte[keys.length];
+                boolean blank = true;
+                for (int i = 0; i < keys.length && values != null; i++) {
+                    int v = field.codes.encode(texts.get(keys[i]));
+                    if (v == AnswerCodes.UNKNOWN)
+                        values = null;
+                    else {
+                        values[i] = (byte) v;
+                        blank &= v == AnswerCodes.BLANK;
+                    }
+                }
+                if (values == null)
+                    continue;
+                for (String key : keys)
+                    texts.remove(key);
+                if (!blank)
+                    coded.put(field.number, values);
+            }
+        }
+        return new FormRecord(record.getId(), texts, coded);
+    }
+
+    /** Registro equivalente só com respostas em texto (o inverso de {@link #encode}). */
+    public FormRecord decode(FormRecord record) {
+        if (record.getCodedAnswers().isEmpty())
+            return record;
+        Map<String, String> texts = new HashMap<>(record.getAnswers());
+        for (Row row : rows) {
+            for (Field field : row.fields) {
+                byte[] values = record.getCoded(field.number);
+                if (values == null)
+                    continue;
+                String[] keys = field.type == FieldType.OPTIONS ? field.optionKeys : new String[] { field.number };
+                for (int i = 0; i < keys.length && i < values.length; i++)
+                    if (values[i] != AnswerCodes.BLANK)
+                        texts.put(keys[i], field.codes.decode(values[i]));
+            }
+        }
+        return new FormRecord(record.getId(), texts);
+    }
+
+    @Override
+    public String toString() {
+        return "FormPlan[" + formType + ", " + rows.size() + " linhas]";
+    }
+}
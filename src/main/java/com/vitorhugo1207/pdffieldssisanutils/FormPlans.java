@@ -0,0 +1,197 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Carrega definições declarativas de formulário e mantém o {@link FormPlan}
+ * compilado de cada tipo em cache.
+ * <p>
+ * Uma definição é um arquivo {@code .properties} (UTF-8) procurado primeiro no
+ * diretório da propriedade de sistema {@code sinan.forms.dir} e depois em
+ * {@code forms/} no classpath. Exemplo (ver {@code forms/exemplo.properties}):
+ *
+ * <pre>
+ * rows = 1, 2
+ * row.1.fields = 28, 29
+ * row.1.widths = 60, 40
+ * row.1.spaceAfter = true
+ *
+ * field.28.type = descriptive
+ * field.28.title = (DDD) Telefone
+ * field.28.minHeight = 0
+ *
+ * field.29.type = legend
+ * field.29.title = Zona
+ * field.29.legend = 1 - Urbana    2 - Rural | 3 - Periurbana  9 - Ignorado
+ *
+ * field.33.type = options
+ * field.33.title = Sinais e Sintomas
+ * field.33.legend = 1 - Sim    2 - Não    9 - Ignorado
+ * field.33.options = Febre | Cefaléia | Dor Abdominal
+ * field.33.columns = 4
+ * field.33.other = true
+ * field.33.flat = true
+ * field.33.codes = 1 | 2 | 9
+ * </pre>
+ *
+ * Listas usam {@code |} como separador; larguras e linhas usam vírgula.
+ * {@code codes} é a tabela de {@link AnswerCodes} do campo (padrão:
+ * {@link AnswerCodes#SINAN}). Campos de opções com {@code split = true}
+ * podem ser divididos entre páginas ({@link SplittableOptionsField}) e devem
+ * ficar sozinhos na linha.
+ */
+public final class FormPlans {
+
+    public static final String FORMS_DIR_PROPERTY = "sinan.forms.dir";
+
+    private static final Map<String, FormPlan> CACHE = new ConcurrentHashMap<>();
+
+    private FormPlans() {
+    }
+
+    /** Plano do tipo de formulário, compilado na primeira chamada. */
+    public static FormPlan get(String formType) {
+        return CACHE.computeIfAbsent(formType, type -> {
+            try {
+                return compile(type, load(type));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Erro ao ler o formulário " + type, e);
+            }
+        });
+    }
+
+    /** Descarta os planos em cache (ex.: após alterar as definições). */
+    public static void clear() {
+        CACHE.clear();
+    }
+
+    private static Properties load(String formType) throws IOException {
+        if (!formType.matches("[A-Za-z0-9_-]+"))
+            throw new IllegalArgumentException("Tipo de formulário inválido: " + formType);
+
+        String dir = System.getProperty(FORMS_DIR_PROPERTY);
+        if (dir != null) {
+            Path file = Paths.get(dir, formType + ".properties");
+            if (Files.exists(file))
+                return read(Files.newInputStream(file));
+        }
+        InputStream in = FormPlans.class.getClassLoader().getResourceAsStream("forms/" + formType + ".properties");
+        if (in == null)
+            throw new IllegalArgumentException("Formulário não encontrado: " + formType);
+        return read(in);
+    }
+
+    private static Properties read(InputStream in) throws IOException {
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            Properties props = new Properties();
+            props.load(reader);
+            return props;
+        }
+    }
+
+    /** Compila uma definição já carregada. */
+    public static FormPlan compile(String formType, Properties props) {
+        List<FormPlan.Row> rows = new ArrayList<>();
+        for (String rowId : list(required(props, "rows"), ",")) {
+            String prefix = "row." + rowId + ".";
+            List<String> fieldNumbers = list(required(props, prefix + "fields"), ",");
+            float[] widths = widths(required(props, prefix + "widths"));
+            if (widths.length != fieldNumbers.size())
+                throw new IllegalArgumentException("Linha " + rowId + ": número de larguras diferente do de campos");
+
+            List<FormPlan.Field> fields = new ArrayList<>();
+            for (String number : fieldNumbers) {
+                FormPlan.Field field = field(props, number);
+                if (field.split && fieldNumbers.size() > 1)
+                    throw new IllegalArgumentException("Linha " + rowId + ": campo dividido " + number
+                            + " precisa ficar sozinho na linha");
+                fields.add(field);
+            }
+            rows.add(new FormPlan.Row(fields, widths,
+                    Boolean.parseBoolean(props.getProperty(prefix + "spaceAfter", "false"))));
+        }
+        return new FormPlan(formType, rows);
+    }
+
+    private static FormPlan.Field field(Properties props, String number) {
+        String prefix = "field." + number + ".";
+        String typeName = required(props, prefix + "type");
+        FormPlan.FieldType type;
+        switch (typeName.toLowerCase()) {
+            case "descriptive":
+                type = FormPlan.FieldType.DESCRIPTIVE;
+                break;
+            case "legend":
+                type = FormPlan.FieldType.LEGEND;
+                break;
+            case "options":
+                type = FormPlan.FieldType.OPTIONS;
+                break;
+            default:
+                throw new IllegalArgumentException("Campo " + number + ": tipo desconhecido " + typeName);
+        }
+
+        List<String> options = list(props.getProperty(prefix + "options"), "\\|");
+        if (type == FormPlan.FieldType.OPTIONS && options.isEmpty())
+            throw new IllegalArgumentException("Campo " + number + ": sem opções");
+
+        int columns = Integer.parseInt(props.getProperty(prefix + "columns", "1").trim());
+        if (columns < 1)
+            throw new IllegalArgumentException("Campo " + number + ": columns deve ser pelo menos 1");
+
+        return new FormPlan.Field(type, number,
+                required(props, prefix + "title"),
+                list(props.getProperty(prefix + "legend"), "\\|"),
+                options,
+                columns,
+                Float.parseFloat(props.getProperty(prefix + "minHeight", "0").trim()),
+                Boolean.parseBoolean(props.getProperty(prefix + "other", "false").trim()),
+                Boolean.parseBoolean(props.getProperty(prefix + "flat", "false").trim()),
+                type == FormPlan.FieldType.OPTIONS
+                        && Boolean.parseBoolean(props.getProperty(prefix + "split", "false").trim()),
+                codes(props.getProperty(prefix + "codes")));
+    }
+
+    private static AnswerCodes codes(String value) {
+        List<String> codes = list(value, "\\|");
+        return codes.isEmpty() ? AnswerCodes.SINAN : AnswerCodes.of(codes);
+    }
+
+    private static String required(Properties props, String key) {
+        String value = props.getProperty(key);
+        if (value == null || value.trim().isEmpty())
+            throw new IllegalArgumentException("Propriedade obrigatória ausente: " + key);
+        return value.trim();
+    }
+
+    private static float[] widths(String value) {
+        List<String> parts = list(value, ",");
+        float[] widths = new float[parts.size()];
+        for (int i = 0; i < widths.length; i++)
+            widths[i] = Float.parseFloat(parts.get(i));
+        return widths;
+    }
+
+    private static List<String> list(String value, String separatorRegex) {
+        if (value == null || value.trim().isEmpty())
+            return Collections.emptyList();
+        List<String> items = new ArrayList<>();
+        for (String item : value.split(separatorRegex))
+            items.add(item.trim());
+        return items;
+    }
+}
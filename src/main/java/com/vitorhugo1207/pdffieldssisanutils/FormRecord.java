@@ -0,0 +1,62 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Respostas de uma notificação, indexadas pelas chaves de {@link AnswerKeys}.
+ * <p>
+ * Respostas codificadas (ver {@link AnswerCodes}) podem ser guardadas de forma
+ * compacta, um {@code byte[]} por número de campo com um valor por opção (ou
+ * um único valor nos campos com legenda), em vez de uma {@code String} por
+ * opção. {@link FormPlan#encode(FormRecord)} faz a conversão.
+ */
+public final class FormRecord {
+
+    public static final FormRecord EMPTY = new FormRecord("", Collections.emptyMap());
+
+    private final String id;
+    private final Map<String, String> answers;
+    private final Map<String, byte[]> coded;
+
+    public FormRecord(String id, Map<String, String> answers) {
+        this(id, answers, Collections.emptyMap());
+    }
+
+    /**
+     * @param coded respostas codificadas por número de campo; os arrays passam
+     *              a pertencer ao registro e não devem ser alterados depois
+     */
+    public FormRecord(String id, Map<String, String> answers, Map<String, byte[]> coded) {
+        this.id = id;
+        this.answers = answers.isEmpty() ? Collections.emptyMap()
+                : Collections.unmodifiableMap(new HashMap<>(answers));
+        this.coded = coded.isEmpty() ? Collections.emptyMap()
+                : Collections.unmodifiableMap(new HashMap<>(coded));
+    }
+
+    /** Identificador do registro (ex.: número da notificação). */
+    public String getId() {
+        return id;
+    }
+
+    /** Resposta em texto da chave, ou {@code null} se não preenchida ou codificada. */
+    public String get(String key) {
+        return answers.get(key);
+    }
+
+    /** Respostas em texto (sem as codificadas). */
+    public Map<String, String> getAnswers() {
+        return answers;
+    }
+
+    /** Respostas codificadas do campo, ou {@code null}. O array não deve ser alterado. */
+    public byte[] getCoded(String fieldNumber) {
+        return coded.get(fieldNumber);
+    }
+
+    public Map<String, byte[]> getCodedAnswers() {
+        return coded;
+    }
+}
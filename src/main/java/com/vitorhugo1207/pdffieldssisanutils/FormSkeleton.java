@@ -0,0 +1,172 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfImportedPage;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Esqueleto pré-renderizado de um formulário.
+ * <p>
+ * A parte estática (números, títulos, legendas, bordas e quadrados) é
+ * renderizada uma única vez com os métodos de {@link PdfFieldUtils}, que nesse
+ * modo registram onde cada resposta ficaria. Para cada registro, as páginas do
+ * esqueleto são importadas como XObject e apenas as respostas são desenhadas
+ * por cima, sem refazer o layout das tabelas. Textos descritivos precisam
+ * caber na altura do campo vazio: ver {@link #fits(Map)}.
+ * <p>
+ * A instância é imutável e pode ser compartilhada entre threads.
+ */
+public final class FormSkeleton {
+
+    /** Monta o formulário no documento, como em {@link Main}. */
+    public interface Layout {
+        void compose(Document document) throws DocumentException;
+    }
+
+    private final byte[] pdf;
+    private final Rectangle pageSize;
+    private final int pageCount;
+    private final List<AnswerSlot> slots;
+    // Posições agrupadas por página (índice 0 = página 1)
+    private final List<List<AnswerSlot>> slotsByPage;
+
+    private FormSkeleton(byte[] pdf, Rectangle pageSize, int pageCount, List<AnswerSlot> slots) {
+        this.pdf = pdf;
+        this.pageSize = pageSize;
+        this.pageCount = pageCount;
+        this.slots = Collections.unmodifiableList(slots);
+
+        List<List<AnswerSlot>> byPage = new ArrayList<>(pageCount);
+        for (int i = 0; i < pageCount; i++)
+            byPage.add(new ArrayList<>());
+        for (AnswerSlot slot : slots)
+            byPage.get(slot.getPage() - 1).add(slot);
+        this.slotsByPage = byPage;
+    }
+
+    /** Renderiza o esqueleto em A4 com margens de 20pt, como em {@link Main}. */
+    public static FormSkeleton render(Layout layout) throws DocumentException, IOException {
+        return render(PageSize.A4, 20, 20, 20, 20, layout);
+    }
+
+    public static FormSkeleton render(Rectangle pageSize, float marginLeft, float marginRight,
+            float marginTop, float marginBottom, Layout layout) throws DocumentException, IOException {
+        List<AnswerSlot> slots = new ArrayList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Document document = new Document(pageSize, marginLeft, marginRight, marginTop, marginBottom);
+        PdfWriter.getInstance(document, out);
+        PdfFieldUtils.beginSkeleton(slots);
+        try {
+            document.open();
+            layout.compose(document);
+            document.close();
+        } finally {
+            PdfFieldUtils.endSkeleton();
+        }
+        byte[] pdf = out.toByteArray();
+        PdfReader reader = new PdfReader(pdf);
+        int pageCount = reader.getNumberOfPages();
+        reader.close();
+
+        return new FormSkeleton(pdf, pageSize, pageCount, slots);
+    }
+
+    /**
+     * Gera um registro: importa as páginas do esqueleto e desenha as respostas
+     * informadas. As chaves seguem {@link AnswerKeys}; chaves sem posição no
+     * esqueleto são ignoradas. Se algum texto descritivo não couber no campo
+     * vazio, lança {@link IllegalArgumentException} antes de gravar qualquer
+     * byte em {@code out}.
+     */
+    public void fill(Map<String, String> answers, OutputStream out) throws DocumentException, IOException {
+        int[] pages = new int[pageCount];
+        for (int i = 0; i < pageCount; i++)
+            pages[i] = i + 1;
+        fillPages(answers, pages, out);
+    }
+
+    /**
+     * Como {@link #fill(Map, OutputStream)}, mas gera apenas as páginas
+     * informadas (começando em 1), na ordem dada.
+     */
+    public void fillPages(Map<String, String> answers, int[] pages, OutputStream out)
+            throws DocumentException, IOException {
+        for (int page : pages)
+            for (AnswerSlot slot : slotsByPage.get(page - 1))
+                if (!fits(slot, answers))
+                    throw new IllegalArgumentException("Campo " + slot.getKey()
+                            + ": texto não cabe na altura do campo no esqueleto");
+
+        // PdfReader não é thread-safe, então cada preenchimento usa o seu
+        PdfReader reader = new PdfReader(pdf);
+        Document document = new Document(pageSize, 0, 0, 0, 0);
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        document.open();
+
+        PdfContentByte cb = writer.getDirectContent();
+        for (int i = 0; i < pages.length; i++) {
+            int page = pages[i];
+            if (i > 0)
+                document.newPage();
+            PdfImportedPage imported = writer.getImportedPage(reader, page);
+            cb.addTemplate(imported, 0, 0);
+
+            for (AnswerSlot slot : slotsByPage.get(page - 1)) {
+                String answer = answers.get(slot.getKey());
+                if (answer != null && !answer.isEmpty())
+                    PdfFieldUtils.drawAnswer(cb, slot, answer);
+            }
+        }
+
+        writer.freeReader(reader);
+        document.close();
+        reader.close();
+    }
+
+    /**
+     * Se todas as respostas cabem nas posições do esqueleto. Quando não cabem,
+     * o registro precisa do layout completo ({@link FormPlan#renderer()}).
+     */
+    public boolean fits(Map<String, String> answers) throws DocumentException {
+        for (AnswerSlot slot : slots)
+            if (!fits(slot, answers))
+                return false;
+        return true;
+    }
+
+    private static boolean fits(AnswerSlot slot, Map<String, String> answers) throws DocumentException {
+        String answer = answers.get(slot.getKey());
+        return answer == null || answer.isEmpty() || PdfFieldUtils.answerFits(slot, answer);
+    }
+
+    /** Bytes do PDF do esqueleto (sem respostas). */
+    public byte[] getPdf() {
+        return pdf.clone();
+    }
+
+    public Rectangle getPageSize() {
+        return pageSize;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public List<AnswerSlot> getSlots() {
+        return slots;
+    }
+}
@@ -0,0 +1,130 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.ANSWER_BOX_SIZE;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.CHECKBOX_SIZE;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.CHECKBOX_TEXT_OFFSET;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.LINE_WIDTH;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.NUMBER_BOX_SIZE;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.TITLE_FONT_SIZE;
+
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Element;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.Phrase;
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.ColumnText;
+import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfWriter;
+
+import java.io.OutputStream;
+
+/**
+ * Backend iText 5: desenha as primitivas no conteúdo direto do
+ * {@link PdfWriter}, com os mesmos traços e fontes das células de
+ * {@link PdfFieldUtils} (inclusive a fonte de {@link EmbeddedFonts}, se
+ * configurada).
+ * <p>
+ * O layout de tabelas de {@link FormPlan#renderer()}, com esqueleto, AcroForm
+ * e emendas, continua sendo o caminho principal da biblioteca; este backend
+ * usa o layout de {@link FieldLayout}, o mesmo dos demais.
+ */
+public final class ITextBackend implements RenderBackend {
+
+    @Override
+    public String getName() {
+        return "itext5";
+    }
+
+    @Override
+    public Canvas open(OutputStream out, float width, float height) throws DocumentException {
+        Document document = new Document(new Rectangle(width, height), 0, 0, 0, 0);
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        document.open();
+        return new ITextCanvas(document, writer);
+    }
+
+    private static final class ITextCanvas implements Canvas {
+        private final Document document;
+        private final PdfWriter writer;
+        private final PdfContentByte cb;
+
+        ITextCanvas(Document document, PdfWriter writer) {
+            this.document = document;
+            this.writer = writer;
+            this.cb = writer.getDirectContent();
+        }
+
+        @Override
+        public float textWidth(boolean bold, float size, String text) {
+            return font(bold, size).getCalculatedBaseFont(false).getWidthPoint(text, size);
+        }
+
+        private static Font font(boolean bold, float size) {
+            return PdfFieldUtils.font(size, bold ? Font.BOLD : Font.NORMAL);
+        }
+
+        @Override
+        public void numberBox(float x, float top, String number) {
+            PdfFieldUtils.drawSquare(cb, x, top - NUMBER_BOX_SIZE, NUMBER_BOX_SIZE, true);
+            PdfFieldUtils.drawBoxText(cb, x, top, NUMBER_BOX_SIZE, number);
+        }
+
+        @Override
+        public void title(float x, float baseline, String title) {
+            show(Element.ALIGN_LEFT, new Phrase(title, font(true, TITLE_FONT_SIZE)), x, baseline);
+        }
+
+        @Override
+        public void text(float x, float baseline, float size, String text) {
+            show(Element.ALIGN_LEFT, new Phrase(text, font(false, size)), x, baseline);
+        }
+
+        @Override
+        public void answerBox(float x, float top, String answer) {
+            PdfFieldUtils.drawSquare(cb, x, top - ANSWER_BOX_SIZE, ANSWER_BOX_SIZE, true);
+            if (!answer.isEmpty())
+                PdfFieldUtils.drawBoxText(cb, x, top, ANSWER_BOX_SIZE, answer);
+        }
+
+        @Override
+        public void checkbox(float x, float y, String code) {
+            PdfFieldUtils.drawSquare(cb, x - CHECKBOX_SIZE / 2, y - CHECKBOX_SIZE / 2, CHECKBOX_SIZE, false);
+            if (!code.isEmpty())
+                show(Element.ALIGN_CENTER, PdfFieldUtils.checkboxPhrase(code), x, y - CHECKBOX_TEXT_OFFSET);
+        }
+
+        private void show(int alignment, Phrase phrase, float x, float baseline) {
+            ColumnText.showTextAligned(cb, alignment, phrase, x, baseline, 0);
+        }
+
+        @Override
+        public void border(float x0, float y0, float x1, float y1) {
+            PdfFieldUtils.drawRoundBottomBorder(cb, x0, y0, x1, y1);
+        }
+
+        @Override
+        public void line(float x0, float y0, float x1, float y1) {
+            cb.saveState();
+            cb.setLineWidth(LINE_WIDTH);
+            cb.setColorStroke(BaseColor.BLACK);
+            cb.moveTo(x0, y0);
+            cb.lineTo(x1, y1);
+            cb.stroke();
+            cb.restoreState();
+        }
+
+        @Override
+        public void newPage() {
+            document.newPage();
+        }
+
+        @Override
+        public void close() {
+            // Formulário sem linhas: o iText não fecha um documento sem páginas
+            writer.setPageEmpty(false);
+            document.close();
+        }
+    }
+}
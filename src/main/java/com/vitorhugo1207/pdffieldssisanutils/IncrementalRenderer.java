@@ -0,0 +1,211 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfSmartCopy;
+import com.itextpdf.text.pdf.PdfWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Regeneração incremental de notificações alteradas, sobre o layout completo
+ * de {@link FormPlan} (A4 com margens de 20pt, como {@link FormPlan#renderer()}).
+ * <p>
+ * Ao renderizar, o {@link PagePacker} registra a página de cada linha. As
+ * linhas que começam no topo de uma página dividem o documento em trechos
+ * independentes. Ao emendar uma notificação, só os trechos com alguma linha
+ * alterada são gerados de novo, e as demais páginas são copiadas do PDF
+ * anterior com {@link PdfSmartCopy}, que também reaproveita fontes e XObjects
+ * iguais. Se a altura de uma linha alterada mudar, a paginação dali em diante
+ * pode mudar, então tudo a partir do trecho dela é gerado de novo.
+ * <p>
+ * As páginas reaproveitadas vêm do PDF da versão anterior; não há um cache de
+ * páginas separado. A instância só guarda o plano e pode ser compartilhada
+ * entre threads; cada {@link Rendition} carrega o PDF, o registro e as
+ * páginas das linhas.
+ */
+public final class IncrementalRenderer {
+
+    /** PDF gerado, o registro que o originou e as páginas de cada linha. */
+    public static final class Rendition {
+        private final byte[] pdf;
+        private final FormRecord record;
+        private final RowPages pages;
+        private final int pageCount;
+        private final Set<Integer> renderedPages;
+
+        Rendition(byte[] pdf, FormRecord record, RowPages pages, int pageCount, Set<Integer> renderedPages) {
+            this.pdf = pdf;
+            this.record = record;
+            this.pages = pages;
+            this.pageCount = pageCount;
+            this.renderedPages = Collections.unmodifiableSet(renderedPages);
+        }
+
+        /** Bytes do PDF. O array não deve ser alterado. */
+        public byte[] getPdf() {
+            return pdf;
+        }
+
+        public FormRecord getRecord() {
+            return record;
+        }
+
+        public int getPageCount() {
+            return pageCount;
+        }
+
+        /** Páginas que foram geradas (e não copiadas) nesta versão. */
+        public Set<Integer> getRenderedPages() {
+            return renderedPages;
+        }
+    }
+
+    private static final float MARGIN = 20;
+    private static final float WIDTH = PageSize.A4.getWidth() - 2 * MARGIN;
+
+    private final FormPlan plan;
+
+    public IncrementalRenderer(FormPlan plan) {
+        this.plan = plan;
+    }
+
+    /** Primeira versão: gera todas as páginas. */
+    public Rendition render(FormRecord record) throws DocumentException, IOException {
+        Part part = render(record, 0, plan.getRows().size());
+        Set<Integer> all = new TreeSet<>();
+        for (int page = 1; page <= part.pageCount; page++)
+            all.add(page);
+        return new Rendition(part.pdf, record, part.pages, part.pageCount, all);
+    }
+
+    /**
+     * Nova versão a partir da anterior: regenera só os trechos com respostas
+     * alteradas, incluídas ou removidas.
+     */
+    public Rendition amend(Rendition previous, FormRecord record) throws DocumentException, IOException {
+        List<Integer> changed = plan.changedRows(previous.record, record);
+        if (changed.isEmpty())
+            return new Rendition(previous.pdf, record, previous.pages, previous.pageCount, Collections.emptySet());
+        RowPages old = previous.pages;
+        int rowCount = plan.getRows().size();
+
+        // Primeira linha alterada que mudou de altura: a paginação pode mudar dali em diante
+        int moved = rowCount;
+        for (int r : changed) {
+            if (!Arrays.equals(plan.measure(r, record, WIDTH), old.heights[r])) {
+                moved = r;
+                break;
+            }
+        }
+
+        // Trechos [from, to) a gerar de novo; o último pode ir até o fim
+        List<Part> parts = new ArrayList<>();
+        int from = 0;
+        for (int r = 1; r <= rowCount; r++) {
+            if (r < rowCount && !old.startsSegment(r))
+                continue;
+            if (moved < r) {
+                if (from == 0)
+                    return render(record);
+                parts.add(render(record, from, rowCount));
+                break;
+            }
+            if (containsAny(changed, from, r)) {
+                Part part = render(record, from, r);
+                int oldPages = (r < rowCount ? old.first[r] : previous.pageCount + 1) - old.first[from];
+                if (part.pageCount != oldPages)
+                    return render(record); // Medidas iguais deveriam dar as mesmas páginas
+                parts.add(part);
+            }
+            from = r;
+        }
+
+        RowPages pages = new RowPages(rowCount);
+        pages.copy(old, 0, rowCount, 0);
+        Set<Integer> rendered = new TreeSet<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(previous.pdf.length);
+        PdfReader oldReader = new PdfReader(previous.pdf);
+        Document document = new Document(PageSize.A4);
+        try {
+            PdfSmartCopy copy = new PdfSmartCopy(document, out);
+            document.open();
+            int next = 1; // próxima página do PDF anterior
+            int count = 0; // páginas já copiadas para a nova versão
+            for (Part part : parts) {
+                for (; next < old.first[part.from]; next++, count++)
+                    copy.addPage(copy.getImportedPage(oldReader, next));
+                PdfReader reader = new PdfReader(part.pdf);
+                try {
+                    for (int page = 1; page <= part.pageCount; page++) {
+                        copy.addPage(copy.getImportedPage(reader, page));
+                        rendered.add(count + page);
+                    }
+                    copy.freeReader(reader);
+                } finally {
+                    reader.close();
+                }
+                pages.copy(part.pages, part.from, part.to, count);
+                count += part.pageCount;
+                next = part.to < rowCount ? old.first[part.to] : previous.pageCount + 1;
+            }
+            for (; next <= previous.pageCount; next++, count++)
+                copy.addPage(copy.getImportedPage(oldReader, next));
+            document.close();
+            return new Rendition(out.toByteArray(), record, pages, count, rendered);
+        } finally {
+            if (document.isOpen())
+                document.close();
+            oldReader.close();
+        }
+    }
+
+    private static boolean containsAny(List<Integer> rows, int from, int to) {
+        for (int r : rows)
+            if (r >= from && r < to)
+                return true;
+        return false;
+    }
+
+    /** Linhas {@code [from, to)} em um documento próprio, a partir da página 1. */
+    private Part render(FormRecord record, int from, int to) throws DocumentException, IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        Document document = new Document(PageSize.A4, MARGIN, MARGIN, MARGIN, MARGIN);
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        document.open();
+        RowPages pages = new RowPages(plan.getRows().size());
+        plan.composeRows(document, record, from, to, pages, writer::getPageNumber);
+        document.close();
+        byte[] pdf = out.toByteArray();
+        PdfReader reader = new PdfReader(pdf);
+        int pageCount = reader.getNumberOfPages();
+        reader.close();
+        return new Part(from, to, pdf, pages, pageCount);
+    }
+
+    /** Trecho gerado: linhas {@code [from, to)} e suas páginas. */
+    private static final class Part {
+        final int from;
+        final int to;
+        final byte[] pdf;
+        final RowPages pages;
+        final int pageCount;
+
+        Part(int from, int to, byte[] pdf, RowPages pages, int pageCount) {
+            this.from = from;
+            this.to = to;
+            this.pdf = pdf;
+            this.pages = pages;
+            this.pageCount = pageCount;
+        }
+    }
+}
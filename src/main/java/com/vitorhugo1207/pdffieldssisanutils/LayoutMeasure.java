@@ -0,0 +1,28 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.pdf.PdfPTable;
+
+/**
+ * Medição da altura de linhas de campos antes de adicioná-las ao documento.
+ * <p>
+ * A altura vem do próprio cálculo de células do iText
+ * ({@link PdfPTable#getTotalHeight()}), que mede textos com as métricas da
+ * {@code BaseFont} sem desenhar nada; o resultado fica guardado na tabela e é
+ * reaproveitado quando ela é adicionada, então medir antes não custa um
+ * segundo layout.
+ */
+public final class LayoutMeasure {
+
+    private LayoutMeasure() {
+    }
+
+    /**
+     * Fixa a largura da tabela em {@code width} e retorna sua altura total.
+     * A tabela deve ser adicionada depois com essa mesma largura.
+     */
+    public static float height(PdfPTable table, float width) {
+        table.setTotalWidth(width);
+        table.setLockedWidth(true);
+        return table.getTotalHeight();
+    }
+}
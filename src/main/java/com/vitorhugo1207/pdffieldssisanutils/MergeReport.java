@@ -0,0 +1,65 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+/**
+ * Resumo de uma junção feita pelo {@link PdfTreeMerger}.
+ */
+public final class MergeReport {
+
+    private final int inputs;
+    private final long pages;
+    private final long inputBytes;
+    private final long outputBytes;
+    private final int levels;
+    private final long elapsedNanos;
+
+    MergeReport(int inputs, long pages, long inputBytes, long outputBytes, int levels, long elapsedNanos) {
+        this.inputs = inputs;
+        this.pages = pages;
+        this.inputBytes = inputBytes;
+        this.outputBytes = outputBytes;
+        this.levels = levels;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getInputs() {
+        return inputs;
+    }
+
+    public long getPages() {
+        return pages;
+    }
+
+    /** Soma dos tamanhos dos arquivos de entrada. */
+    public long getInputBytes() {
+        return inputBytes;
+    }
+
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    /** Níveis da árvore de junção (1 quando todas as entradas cabem em uma junção). */
+    public int getLevels() {
+        return levels;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getPagesPerSecond() {
+        return elapsedNanos == 0 ? 0 : pages * 1_000_000_000d / elapsedNanos;
+    }
+
+    public double getInputMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : inputBytes / 1_048_576d * 1_000_000_000d / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d arquivos, %d páginas em %.2fs (%.1f páginas/s, %.1f MB/s); "
+                        + "%d -> %d bytes (%.1f%%), %d níveis",
+                inputs, pages, elapsedNanos / 1e9, getPagesPerSecond(), getInputMegabytesPerSecond(),
+                inputBytes, outputBytes, inputBytes == 0 ? 0 : outputBytes * 100d / inputBytes, levels);
+    }
+}
@@ -0,0 +1,142 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.pdf.PdfPTable;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Distribui linhas de campos nas páginas sem nunca dividir um campo.
+ * <p>
+ * Cada linha é medida antes de ser adicionada (ver {@link LayoutMeasure}); se
+ * não couber no espaço que resta, a página é quebrada antes dela. O espaço
+ * usado é acompanhado aqui mesmo, então a paginação depende só das alturas
+ * medidas (com as regras de {@link PageSpace}, as mesmas de {@link FieldLayout}).
+ * Linhas mais altas que uma página inteira são divididas pelo iText.
+ * <p>
+ * O empacotador assume que o documento está no topo de uma página quando é
+ * criado e que nada mais é adicionado ao documento enquanto ele é usado.
+ * <p>
+ * Com {@link #trackPages(IntSupplier)}, guarda a página em que cada linha
+ * começou, para {@link IncrementalRenderer} saber quais páginas podem ser
+ * geradas de novo sozinhas.
+ */
+public final class PagePacker {
+
+    private final Document document;
+    private final float width;
+    private final PageSpace space;
+    private IntSupplier pageNumber;
+    private int firstPage;
+    private boolean startedPage;
+
+    public PagePacker(Document document) {
+        this.document = document;
+        this.width = document.right() - document.left();
+        this.space = new PageSpace(document.top() - document.bottom());
+    }
+
+    /** Passa a registrar a página ({@code PdfWriter::getPageNumber}) de cada linha. */
+    public void trackPages(IntSupplier pageNumber) {
+        this.pageNumber = pageNumber;
+    }
+
+    /** Página em que a última linha começou (com {@link #trackPages}). */
+    public int getFirstPage() {
+        return firstPage;
+    }
+
+    /** Se a última linha começou no topo de uma página. */
+    public boolean startedPage() {
+        return startedPage;
+    }
+
+    /** Largura útil da página, em que as linhas são medidas. */
+    public float getWidth() {
+        return width;
+    }
+
+    /** Altura que ainda resta na página atual. */
+    public float getRemaining() {
+        return space.getRemaining();
+    }
+
+    /** Mede e adiciona a linha. */
+    public void add(PdfPTable row) throws DocumentException {
+        add(row, LayoutMeasure.height(row, width));
+    }
+
+    /**
+     * Adiciona a linha com altura já medida por {@link LayoutMeasure}, na
+     * largura {@link #getWidth()}.
+     */
+    public void add(PdfPTable row, float height) throws DocumentException {
+        add(row, height, "");
+    }
+
+    /**
+     * Como {@link #add(PdfPTable, float)}; {@code name} identifica a linha
+     * nas medidas de {@link RenderMetrics} (ex.: os números dos campos).
+     */
+    public void add(PdfPTable row, float height, String name) throws DocumentException {
+        if (space.breaksBefore(height))
+            newPage();
+        begin();
+        // Só uma linha maior que a página pode ser dividida
+        row.setKeepTogether(height <= space.getPageHeight());
+        RenderMetrics.Probe probe = RenderMetrics.begin(RenderMetrics.Stage.LAYOUT);
+        document.add(row);
+        RenderMetrics.end(probe, RenderMetrics.Stage.LAYOUT, "linha", name);
+        space.take(height);
+    }
+
+    /**
+     * Adiciona um campo divisível: só quebra a página antes se nem o cabeçalho
+     * com a primeira linha do grid couber. Nas páginas seguintes o cabeçalho
+     * se repete, como o iText faz com as linhas de cabeçalho da tabela.
+     */
+    public void add(SplittableOptionsField field, String name) throws DocumentException {
+        float header = field.getHeaderHeight(width);
+        if (space.breaksBefore(header + field.getRowHeight(0)))
+            newPage();
+        begin();
+        RenderMetrics.Probe probe = RenderMetrics.begin(RenderMetrics.Stage.LAYOUT);
+        field.addTo(document);
+        RenderMetrics.end(probe, RenderMetrics.Stage.LAYOUT, "linha", name);
+
+        space.take(header);
+        for (int row = 0; row < field.getRowCount(); row++) {
+            float height = field.getRowHeight(row);
+            if (!space.fits(height)) {
+                space.newPage();
+                space.take(header);
+            }
+            space.take(height);
+        }
+    }
+
+    private void newPage() {
+        document.newPage();
+        space.newPage();
+    }
+
+    private void begin() {
+        startedPage = space.atTop();
+        if (pageNumber != null)
+            firstPage = pageNumber.getAsInt();
+    }
+
+    /**
+     * Linha em branco entre campos. Se não couber, quebra a página em vez de
+     * deixar o espaço no topo da seguinte.
+     */
+    public void addSpace() throws DocumentException {
+        Paragraph blank = new Paragraph(" ");
+        if (space.takeSpace(blank.getTotalLeading()))
+            document.add(blank);
+        else
+            newPage();
+    }
+}
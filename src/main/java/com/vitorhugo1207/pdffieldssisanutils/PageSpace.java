@@ -0,0 +1,63 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+/**
+ * Altura que resta na página e as regras de quebra entre linhas de campos,
+ * as mesmas para {@link PagePacker} (tabelas do iText) e para
+ * {@link FieldLayout} (primitivas de um {@link RenderBackend}).
+ */
+final class PageSpace {
+
+    private final float pageHeight;
+    private float remaining;
+
+    PageSpace(float pageHeight) {
+        this.pageHeight = pageHeight;
+        this.remaining = pageHeight;
+    }
+
+    float getPageHeight() {
+        return pageHeight;
+    }
+
+    float getRemaining() {
+        return remaining;
+    }
+
+    /** Se nada foi posto na página atual. */
+    boolean atTop() {
+        return remaining == pageHeight;
+    }
+
+    boolean fits(float height) {
+        return height <= remaining;
+    }
+
+    /**
+     * Se a página deve ser quebrada antes de uma linha: só quando ela não
+     * cabe no que resta e a página já tem alguma coisa.
+     */
+    boolean breaksBefore(float height) {
+        return !fits(height) && !atTop();
+    }
+
+    void newPage() {
+        remaining = pageHeight;
+    }
+
+    /** Desconta uma linha; uma linha maior que o resto continua nas páginas seguintes. */
+    void take(float height) {
+        remaining = height <= remaining ? remaining - height : pageHeight - (height - remaining) % pageHeight;
+    }
+
+    /**
+     * Desconta o espaço entre linhas. Se não couber, devolve {@code false}
+     * sem descontar: a página deve ser quebrada em vez de deixar o espaço no
+     * topo da seguinte.
+     */
+    boolean takeSpace(float leading) {
+        if (!fits(leading))
+            return false;
+        remaining -= leading;
+        return true;
+    }
+}
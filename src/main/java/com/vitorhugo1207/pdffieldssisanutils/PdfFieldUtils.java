@@ -4,6 +4,8 @@ import com.itextpdf.text.*;
 import com.itextpdf.text.pdf.*;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Classe utilitária para criar campos estilizados em relatórios PDF usando
@@ -13,101 +15,226 @@ import java.util.List;
 public class PdfFieldUtils {
 
     // --- CONFIGURAÇÕES VISUAIS ---
-    private static final float LINE_WIDTH = 0.5f;
-    private static final float CORNER_RADIUS = 6f;
+    // (visíveis no pacote para backends que desenham a mesma geometria)
+    static final float LINE_WIDTH = 0.5f;
+    static final float CORNER_RADIUS = 6f;
 
     // Tamanhos
-    private static final float NUMBER_BOX_SIZE = 14f;
-    private static final float CHECKBOX_SIZE = 10f;
-    private static final float ANSWER_BOX_SIZE = 16f;
+    static final float NUMBER_BOX_SIZE = 14f;
+    static final float CHECKBOX_SIZE = 10f;
+    static final float ANSWER_BOX_SIZE = 16f;
+
+    // Espaço entre o conteúdo e a borda de baixo dos campos
+    static final float MAIN_BOTTOM_PADDING = 5f;
+
+    // Cabeçalho (quadrado do número + título): altura mínima e recuo do título
+    static final float HEADER_PADDING_TOP = 2f;
+    static final float HEADER_HEIGHT = NUMBER_BOX_SIZE + HEADER_PADDING_TOP;
+    static final float TITLE_INDENT = NUMBER_BOX_SIZE + 5f;
+
+    // Texto dos campos descritivos e linhas de legenda
+    static final float CONTENT_PADDING_TOP = 2f;
+    static final float CONTENT_PADDING = 5f;
+    static final float LEGEND_PADDING_BOTTOM = 1f;
+    static final float ANSWER_CELL_HEIGHT = ANSWER_BOX_SIZE + 2f;
+
+    // Grid de opções: altura de cada linha, recuo e espaço antes de "Outros"
+    static final float OPTION_ROW_HEIGHT = CHECKBOX_SIZE + 4f;
+    static final float OPTION_INDENT = 5f;
+    static final float OTHER_GAP = 5f;
+
+    // Distância da linha de base até o centro da célula ao sobrepor respostas
+    static final float CHECKBOX_TEXT_OFFSET = 3.5f;
+    static final float TEXT_LINE_OFFSET = 4.5f;
 
     // Fontes
+    static final float TITLE_FONT_SIZE = 8f;
+    static final float LEGEND_FONT_SIZE = 7f;
+    static final float CONTENT_FONT_SIZE = 9f;
+    static final float NUMBER_FONT_SIZE = 7f;
+    static final float CHECKBOX_FONT_SIZE = 7f;
+
+    // Distância da linha de base até o centro dos quadrados com texto
+    static final float BOX_TEXT_OFFSET = NUMBER_FONT_SIZE / 3.5f;
+
     private static Font TITLE_FONT;
     private static Font LEGEND_FONT;
     private static Font CONTENT_FONT;
     private static Font NUMBER_FONT;
+    private static Font CHECKBOX_FONT;
+
+    // Fontes por tamanho/estilo, compartilhadas (Font não é alterada depois de criada)
+    private static final Map<Integer, Font> FONT_CACHE = new ConcurrentHashMap<>();
 
     static {
         try {
-            TITLE_FONT = new Font(Font.FontFamily.HELVETICA, 8, Font.BOLD, BaseColor.BLACK);
-            LEGEND_FONT = new Font(Font.FontFamily.HELVETICA, 7, Font.NORMAL, BaseColor.BLACK);
-            CONTENT_FONT = new Font(Font.FontFamily.HELVETICA, 9, Font.NORMAL, BaseColor.BLACK);
-            NUMBER_FONT = new Font(Font.FontFamily.HELVETICA, 7f, Font.BOLD, BaseColor.BLACK);
+            TITLE_FONT = font(TITLE_FONT_SIZE, Font.BOLD);
+            LEGEND_FONT = font(LEGEND_FONT_SIZE, Font.NORMAL);
+            CONTENT_FONT = font(CONTENT_FONT_SIZE, Font.NORMAL);
+            NUMBER_FONT = font(NUMBER_FONT_SIZE, Font.BOLD);
+            CHECKBOX_FONT = font(CHECKBOX_FONT_SIZE, Font.NORMAL);
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Fonte preta no tamanho e estilo pedidos, vinda do cache: a embutida de
+     * {@link EmbeddedFonts}, se configurada, ou a Helvetica padrão.
+     * O tamanho é arredondado para décimos de ponto.
+     */
+    static Font font(float size, int style) {
+        int tenths = Math.round(size * 10);
+        return FONT_CACHE.computeIfAbsent(tenths * 16 + style, k -> createFont(tenths / 10f, style));
+    }
+
+    private static Font createFont(float size, int style) {
+        BaseFont regular = EmbeddedFonts.regular();
+        if (regular == null)
+            return new Font(Font.FontFamily.HELVETICA, size, style, BaseColor.BLACK);
+        BaseFont bold = (style & Font.BOLD) != 0 ? EmbeddedFonts.bold() : null;
+        if (bold != null)
+            return new Font(bold, size, style & ~Font.BOLD, BaseColor.BLACK); // o arquivo já é negrito
+        return new Font(regular, size, style, BaseColor.BLACK);
+    }
+
     // --- EVENTOS ---
 
     static class RoundBottomBorderEvent implements PdfPCellEvent {
         @Override
         public void cellLayout(PdfPCell cell, Rectangle position, PdfContentByte[] canvases) {
             PdfContentByte cb = canvases[PdfPTable.LINECANVAS];
-            cb.saveState();
-            cb.setLineWidth(LINE_WIDTH);
-            cb.setColorStroke(BaseColor.BLACK);
-
-            float adj = LINE_WIDTH / 2;
-            float left = position.getLeft() + adj;
-            float right = position.getRight() - adj;
-            float top = position.getTop() - adj;
-            float bottom = position.getBottom() + adj;
-            float r = CORNER_RADIUS;
-            float b = 0.552284749831f * r;
-
-            cb.moveTo(left, top);
-            cb.lineTo(left, bottom + r);
-            cb.curveTo(left, bottom + r - b, left + r - b, bottom, left + r, bottom);
-            cb.lineTo(right - r, bottom);
-            cb.curveTo(right - r + b, bottom, right, bottom + r - b, right, bottom + r);
-            cb.lineTo(right, top);
-
-            cb.stroke();
-            cb.restoreState();
+            float width = position.getWidth();
+            float height = position.getHeight();
+            // No modo compacto, campos do mesmo tamanho reutilizam o mesmo XObject
+            if (CompactOutput.isEnabled(cb)) {
+                String key = "borda:" + Math.round(width * 100) + "x" + Math.round(height * 100);
+                if (CompactOutput.addShared(cb, key, width, height, position.getLeft(), position.getBottom(),
+                        t -> drawRoundBottomBorder(t, 0, 0, width, height)))
+                    return;
+            }
+            drawRoundBottomBorder(cb, position.getLeft(), position.getBottom(), position.getRight(),
+                    position.getTop());
         }
     }
 
+    /** Borda em U com cantos inferiores arredondados, por dentro do retângulo. */
+    static void drawRoundBottomBorder(PdfContentByte cb, float x0, float y0, float x1, float y1) {
+        cb.saveState();
+        cb.setLineWidth(LINE_WIDTH);
+        cb.setColorStroke(BaseColor.BLACK);
+
+        float adj = LINE_WIDTH / 2;
+        float left = x0 + adj;
+        float right = x1 - adj;
+        float top = y1 - adj;
+        float bottom = y0 + adj;
+        float r = CORNER_RADIUS;
+        float b = 0.552284749831f * r;
+
+        cb.moveTo(left, top);
+        cb.lineTo(left, bottom + r);
+        cb.curveTo(left, bottom + r - b, left + r - b, bottom, left + r, bottom);
+        cb.lineTo(right - r, bottom);
+        cb.curveTo(right - r + b, bottom, right, bottom + r - b, right, bottom + r);
+        cb.lineTo(right, top);
+
+        cb.stroke();
+        cb.restoreState();
+    }
+
     /**
      * Desenha o quadrado E o número manualmente no topo esquerdo.
      * Adiciona preenchimento Branco para cobrir linhas de fundo.
      */
     static class TopLeftSquareEvent implements PdfPCellEvent {
         private final float size;
-        private final String text;
+        private final Phrase text;
 
         public TopLeftSquareEvent(float size, String text) {
             this.size = size;
-            this.text = text;
+            this.text = new Phrase(text, NUMBER_FONT);
         }
 
         @Override
         public void cellLayout(PdfPCell cell, Rectangle position, PdfContentByte[] canvases) {
-            PdfContentByte cb = canvases[PdfPTable.LINECANVAS];
-            cb.saveState();
-            cb.setLineWidth(LINE_WIDTH);
-            cb.setColorStroke(BaseColor.BLACK);
-            cb.setColorFill(BaseColor.WHITE); // Fundo Branco
-
             float adj = LINE_WIDTH / 2;
             float x = position.getLeft() + adj;
             float y = position.getTop() - adj;
 
             // Desenha Quadrado (Preenchido e com Borda)
-            cb.rectangle(x, y - size, size, size);
-            cb.fillStroke();
-            cb.restoreState();
+            drawSquare(canvases[PdfPTable.LINECANVAS], x, y - size, size, true);
 
             // Desenha o Texto Centralizado no Quadrado
-            PdfContentByte textCanvas = canvases[PdfPTable.TEXTCANVAS];
-            textCanvas.saveState();
-            float centerX = x + (size / 2);
-            float centerY = y - (size / 2);
-            float verticalOffset = (NUMBER_FONT.getSize() / 3.5f);
-
-            ColumnText.showTextAligned(textCanvas, Element.ALIGN_CENTER,
-                    new Phrase(text, NUMBER_FONT), centerX, centerY - verticalOffset, 0);
-            textCanvas.restoreState();
+            drawBoxText(canvases[PdfPTable.TEXTCANVAS], x, y, size, text);
+        }
+    }
+
+    /**
+     * Quadrado com canto inferior esquerdo em (x, y). No modo compacto vira
+     * uma referência a um XObject compartilhado por tamanho.
+     */
+    static void drawSquare(PdfContentByte cb, float x, float y, float size, boolean whiteFill) {
+        if (CompactOutput.isEnabled(cb)) {
+            float adj = LINE_WIDTH / 2;
+            String key = (whiteFill ? "caixa:" : "quadrado:") + size;
+            if (CompactOutput.addShared(cb, key, size + LINE_WIDTH, size + LINE_WIDTH, x - adj, y - adj,
+                    t -> strokeSquare(t, adj, adj, size, whiteFill)))
+                return;
+        }
+        strokeSquare(cb, x, y, size, whiteFill);
+    }
+
+    private static void strokeSquare(PdfContentByte cb, float x, float y, float size, boolean whiteFill) {
+        cb.saveState();
+        cb.setLineWidth(LINE_WIDTH);
+        cb.setColorStroke(BaseColor.BLACK);
+        if (whiteFill)
+            cb.setColorFill(BaseColor.WHITE); // Fundo Branco
+        cb.rectangle(x, y, size, size);
+        if (whiteFill)
+            cb.fillStroke();
+        else
+            cb.stroke();
+        cb.restoreState();
+    }
+
+    /**
+     * Escreve o texto centralizado em um quadrado cujo canto superior esquerdo
+     * está em (x, y). Usado pelo evento e pela sobreposição do esqueleto.
+     */
+    static void drawBoxText(PdfContentByte textCanvas, float x, float y, float size, String text) {
+        drawBoxText(textCanvas, x, y, size, new Phrase(text, NUMBER_FONT));
+    }
+
+    private static void drawBoxText(PdfContentByte textCanvas, float x, float y, float size, Phrase text) {
+        textCanvas.saveState();
+        float centerX = x + (size / 2);
+        float centerY = y - (size / 2);
+        ColumnText.showTextAligned(textCanvas, Element.ALIGN_CENTER,
+                text, centerX, centerY - BOX_TEXT_OFFSET, 0);
+        textCanvas.restoreState();
+    }
+
+    /**
+     * Registra a posição final de uma célula de resposta quando um esqueleto
+     * está sendo renderizado (ver {@link FormSkeleton}).
+     */
+    static class AnswerSlotEvent implements PdfPCellEvent {
+        private final List<AnswerSlot> slots;
+        private final String key;
+        private final AnswerSlot.Kind kind;
+
+        AnswerSlotEvent(List<AnswerSlot> slots, String key, AnswerSlot.Kind kind) {
+            this.slots = slots;
+            this.key = key;
+            this.kind = kind;
+        }
+
+        @Override
+        public void cellLayout(PdfPCell cell, Rectangle position, PdfContentByte[] canvases) {
+            int page = canvases[PdfPTable.TEXTCANVAS].getPdfWriter().getPageNumber();
+            slots.add(new AnswerSlot(key, kind, page, position));
         }
     }
 
@@ -118,29 +245,205 @@ public class PdfFieldUtils {
             this.size = size;
         }
 
+        @Override
+        public void cellLayout(PdfPCell cell, Rectangle position, PdfContentByte[] canvases) {
+            float centerX = (position.getLeft() + position.getRight()) / 2;
+            float centerY = (position.getTop() + position.getBottom()) / 2;
+            drawSquare(canvases[PdfPTable.LINECANVAS], centerX - (size / 2), centerY - (size / 2), size, false);
+        }
+    }
+
+    /** Só as laterais da borda: o trecho do meio de um campo dividido entre páginas. */
+    static class SideBordersEvent implements PdfPCellEvent {
         @Override
         public void cellLayout(PdfPCell cell, Rectangle position, PdfContentByte[] canvases) {
             PdfContentByte cb = canvases[PdfPTable.LINECANVAS];
+            float adj = LINE_WIDTH / 2;
             cb.saveState();
             cb.setLineWidth(LINE_WIDTH);
             cb.setColorStroke(BaseColor.BLACK);
-            float centerX = (position.getLeft() + position.getRight()) / 2;
-            float centerY = (position.getTop() + position.getBottom()) / 2;
-            cb.rectangle(centerX - (size / 2), centerY - (size / 2), size, size);
+            cb.moveTo(position.getLeft() + adj, position.getTop());
+            cb.lineTo(position.getLeft() + adj, position.getBottom());
+            cb.moveTo(position.getRight() - adj, position.getTop());
+            cb.lineTo(position.getRight() - adj, position.getBottom());
             cb.stroke();
             cb.restoreState();
         }
     }
 
+    // --- EVENTOS COMPARTILHADOS ---
+
+    // Os eventos não guardam estado de layout, então uma instância serve para
+    // todas as células e threads.
+    private static final RoundBottomBorderEvent ROUND_BOTTOM_BORDER = new RoundBottomBorderEvent();
+    private static final CenteredSquareEvent CHECKBOX_SQUARE = new CenteredSquareEvent(CHECKBOX_SIZE);
+    private static final SideBordersEvent SIDE_BORDERS = new SideBordersEvent();
+
+    // Quadrados com texto, por texto (números de campo e códigos de resposta)
+    private static final int MAX_CACHED_BOXES = 1024;
+    private static final Map<String, TopLeftSquareEvent> NUMBER_BOXES = new ConcurrentHashMap<>();
+    private static final Map<String, TopLeftSquareEvent> ANSWER_BOXES = new ConcurrentHashMap<>();
+
+    // Respostas dos quadradinhos de opção, por código
+    private static final Map<String, Phrase> CHECKBOX_PHRASES = new ConcurrentHashMap<>();
+
+    /** Phrase do código na fonte dos quadradinhos, vinda do cache. */
+    static Phrase checkboxPhrase(String code) {
+        Phrase phrase = CHECKBOX_PHRASES.get(code);
+        if (phrase != null)
+            return phrase;
+        phrase = new Phrase(code, CHECKBOX_FONT);
+        if (CHECKBOX_PHRASES.size() < MAX_CACHED_BOXES)
+            CHECKBOX_PHRASES.putIfAbsent(code, phrase);
+        return phrase;
+    }
+
+    private static TopLeftSquareEvent numberBox(String number) {
+        return squareEvent(NUMBER_BOXES, NUMBER_BOX_SIZE, number);
+    }
+
+    private static TopLeftSquareEvent answerBox(String answer) {
+        return squareEvent(ANSWER_BOXES, ANSWER_BOX_SIZE, answer);
+    }
+
+    private static TopLeftSquareEvent squareEvent(Map<String, TopLeftSquareEvent> cache, float size, String text) {
+        TopLeftSquareEvent event = cache.get(text);
+        if (event != null)
+            return event;
+        event = new TopLeftSquareEvent(size, text);
+        // Textos livres não entram no cache para ele não crescer sem limite
+        if (cache.size() < MAX_CACHED_BOXES)
+            cache.putIfAbsent(text, event);
+        return event;
+    }
+
+    // --- ESQUELETO ---
+
+    // Quando preenchido, os campos são montados sem respostas e apenas
+    // registram onde cada resposta deve ser desenhada depois.
+    private static final ThreadLocal<List<AnswerSlot>> SKELETON_SLOTS = new ThreadLocal<>();
+
+    static void beginSkeleton(List<AnswerSlot> slots) {
+        SKELETON_SLOTS.set(slots);
+    }
+
+    static void endSkeleton() {
+        SKELETON_SLOTS.remove();
+    }
+
+    /** Retorna a resposta a ser desenhada, ou vazio se estiver montando um esqueleto. */
+    private static String answerText(String answer) {
+        if (answer == null || SKELETON_SLOTS.get() != null)
+            return "";
+        return answer;
+    }
+
+    /** Phrase da resposta codificada, ou a do branco se estiver montando um esqueleto. */
+    private static Phrase answerPhrase(byte[] answers, int i, AnswerCodes codes) {
+        if (answers == null || i >= answers.length || SKELETON_SLOTS.get() != null)
+            return codes.checkboxPhrase(AnswerCodes.BLANK);
+        return codes.checkboxPhrase(answers[i]);
+    }
+
+    /** Registra a célula como posição de resposta, apenas no modo esqueleto. */
+    private static void markAnswerSlot(PdfPCell cell, String key, AnswerSlot.Kind kind) {
+        List<AnswerSlot> slots = SKELETON_SLOTS.get();
+        if (slots != null)
+            cell.setCellEvent(new AnswerSlotEvent(slots, key, kind));
+    }
+
+    /**
+     * Desenha a resposta sobre a posição registrada no esqueleto, reproduzindo
+     * o mesmo posicionamento que a célula teria no modo normal. Um texto
+     * descritivo que não cabe na altura do campo vazio lança
+     * {@link IllegalArgumentException} (ver {@link #answerFits}).
+     */
+    static void drawAnswer(PdfContentByte cb, AnswerSlot slot, String answer) throws DocumentException {
+        Rectangle p = slot.getPosition();
+        float centerX = (p.getLeft() + p.getRight()) / 2;
+        float centerY = (p.getTop() + p.getBottom()) / 2;
+        switch (slot.getKind()) {
+            case BOX:
+                float adj = LINE_WIDTH / 2;
+                drawBoxText(cb, p.getLeft() + adj, p.getTop() - adj, ANSWER_BOX_SIZE, answer);
+                break;
+            case CHECKBOX:
+                ColumnText.showTextAligned(cb, Element.ALIGN_CENTER, checkboxPhrase(answer),
+                        centerX, centerY - CHECKBOX_TEXT_OFFSET, 0);
+                break;
+            case TEXT_LINE:
+                ColumnText.showTextAligned(cb, Element.ALIGN_LEFT, new Phrase(answer, CONTENT_FONT),
+                        p.getLeft() + 3f, centerY - TEXT_LINE_OFFSET, 0);
+                break;
+            case TEXT_BLOCK:
+                if (ColumnText.hasMoreText(textBlock(cb, p, answer).go()))
+                    throw new IllegalArgumentException("Campo " + slot.getKey()
+                            + ": texto não cabe na altura do campo no esqueleto");
+                break;
+        }
+    }
+
+    /** Se a resposta cabe na posição; só textos descritivos podem não caber. */
+    static boolean answerFits(AnswerSlot slot, String answer) throws DocumentException {
+        if (slot.getKind() != AnswerSlot.Kind.TEXT_BLOCK)
+            return true;
+        return !ColumnText.hasMoreText(textBlock(null, slot.getPosition(), answer).go(true));
+    }
+
+    private static ColumnText textBlock(PdfContentByte cb, Rectangle p, String answer) {
+        ColumnText ct = new ColumnText(cb);
+        ct.setSimpleColumn(p.getLeft() + 5f, p.getBottom() + 5f, p.getRight() - 5f, p.getTop() - 2f);
+        ct.setLeading(0, 1);
+        ct.addText(new Phrase(answer, CONTENT_FONT));
+        return ct;
+    }
+
+    /** Fonte da resposta de cada tipo de posição. */
+    static Font answerFont(AnswerSlot.Kind kind) {
+        switch (kind) {
+            case BOX:
+                return NUMBER_FONT;
+            case CHECKBOX:
+                return CHECKBOX_FONT;
+            default:
+                return CONTENT_FONT;
+        }
+    }
+
+    /**
+     * Área onde a resposta fica dentro da célula registrada: o próprio quadrado
+     * nas caixas e a área sem padding nos textos.
+     */
+    static Rectangle answerArea(AnswerSlot slot) {
+        Rectangle p = slot.getPosition();
+        switch (slot.getKind()) {
+            case BOX:
+                float adj = LINE_WIDTH / 2;
+                float x = p.getLeft() + adj;
+                float y = p.getTop() - adj;
+                return new Rectangle(x, y - ANSWER_BOX_SIZE, x + ANSWER_BOX_SIZE, y);
+            case CHECKBOX:
+                float centerX = (p.getLeft() + p.getRight()) / 2;
+                float centerY = (p.getTop() + p.getBottom()) / 2;
+                float half = CHECKBOX_SIZE / 2;
+                return new Rectangle(centerX - half, centerY - half, centerX + half, centerY + half);
+            case TEXT_LINE:
+                return new Rectangle(p.getLeft() + 3f, p.getBottom(), Math.max(p.getLeft() + 3f, p.getRight() - 50f),
+                        p.getTop());
+            default:
+                return new Rectangle(p.getLeft() + 5f, p.getBottom() + 5f, p.getRight() - 5f, p.getTop() - 2f);
+        }
+    }
+
     // --- MÉTODOS AUXILIARES ---
 
     private static void configureMainCell(PdfPCell mainCell) {
         mainCell.setBorder(Rectangle.NO_BORDER);
-        mainCell.setCellEvent(new RoundBottomBorderEvent());
+        mainCell.setCellEvent(ROUND_BOTTOM_BORDER);
         mainCell.setPaddingTop(0);
         mainCell.setPaddingLeft(0);
         mainCell.setPaddingRight(0);
-        mainCell.setPaddingBottom(5f);
+        mainCell.setPaddingBottom(MAIN_BOTTOM_PADDING);
     }
 
     /**
@@ -152,30 +455,50 @@ public class PdfFieldUtils {
         cell.setBorder(Rectangle.NO_BORDER);
 
         // 1. O Evento desenha o número no canto esquerdo (0,0 da célula)
-        cell.setCellEvent(new TopLeftSquareEvent(NUMBER_BOX_SIZE, number));
+        cell.setCellEvent(numberBox(number));
 
         // 2. Empurramos o texto do título para a direita para não bater no quadrado
         // Tamanho do quadrado + 5pt de margem visual
-        cell.setPaddingLeft(NUMBER_BOX_SIZE + 5f);
+        cell.setPaddingLeft(TITLE_INDENT);
 
         // Ajuste vertical para o título alinhar com o centro do quadrado
         cell.setVerticalAlignment(Element.ALIGN_MIDDLE);
 
         // Pequeno ajuste de topo para o texto não ficar colado na linha superior
         // invisível
-        cell.setPaddingTop(2f);
+        cell.setPaddingTop(HEADER_PADDING_TOP);
 
         // Garante altura mínima para caber o quadrado
-        cell.setMinimumHeight(NUMBER_BOX_SIZE + 2f);
+        cell.setMinimumHeight(HEADER_HEIGHT);
 
         return cell;
     }
 
+    /**
+     * Header Personalizado para incluir Legenda na mesma linha.
+     * Usamos Phrase para manter o modo texto e o alinhamento correto (igual ao createHeaderCell)
+     */
+    private static PdfPCell createOptionsHeaderCell(String fieldNumber, String title, String legend) {
+        Phrase headerPhrase = new Phrase();
+        headerPhrase.add(new Chunk(title, TITLE_FONT));
+        headerPhrase.add(new Chunk("   " + legend, LEGEND_FONT));
+
+        PdfPCell headerCell = new PdfPCell(headerPhrase);
+        headerCell.setBorder(Rectangle.NO_BORDER);
+        headerCell.setCellEvent(numberBox(fieldNumber));
+        headerCell.setPaddingLeft(TITLE_INDENT); // Padding para o quadrado
+        headerCell.setPaddingTop(HEADER_PADDING_TOP);
+        headerCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
+        headerCell.setMinimumHeight(HEADER_HEIGHT);
+        return headerCell;
+    }
+
     // --- CAMPOS ---
 
     /** TIPO 1: Zona (29) */
     public static PdfPCell createFieldWithLegendAndAnswerBox(
             String fieldNumber, String title, List<String> legendLines, String answer, float widthPercentage) {
+        RenderMetrics.Probe probe = RenderMetrics.begin(RenderMetrics.Stage.BUILD);
 
         // Tabela principal interna de 2 colunas:
         // Coluna 1: (85%) Título + Legendas
@@ -193,11 +516,11 @@ public class PdfFieldUtils {
         PdfPCell headerCell = new PdfPCell(new Phrase(title, TITLE_FONT));
         headerCell.setBorder(Rectangle.NO_BORDER);
         // Desenha o quadrado [29] no topo esquerdo
-        headerCell.setCellEvent(new TopLeftSquareEvent(NUMBER_BOX_SIZE, fieldNumber));
+        headerCell.setCellEvent(numberBox(fieldNumber));
         // Empurra o texto "Zona" para a direita
-        headerCell.setPaddingLeft(NUMBER_BOX_SIZE + 5f);
-        headerCell.setPaddingTop(2f);
-        headerCell.setMinimumHeight(NUMBER_BOX_SIZE + 2f);
+        headerCell.setPaddingLeft(TITLE_INDENT);
+        headerCell.setPaddingTop(HEADER_PADDING_TOP);
+        headerCell.setMinimumHeight(HEADER_HEIGHT);
         leftContent.addCell(headerCell);
 
         // 2. Legendas (Logo abaixo do título)
@@ -205,9 +528,9 @@ public class PdfFieldUtils {
             PdfPCell l = new PdfPCell(new Phrase(line, LEGEND_FONT));
             l.setBorder(Rectangle.NO_BORDER);
             // Alinha com o texto do título (pula o quadrado)
-            l.setPaddingLeft(NUMBER_BOX_SIZE + 5f);
+            l.setPaddingLeft(TITLE_INDENT);
             l.setPaddingTop(0f); // Cola no título
-            l.setPaddingBottom(1f);
+            l.setPaddingBottom(LEGEND_PADDING_BOTTOM);
             leftContent.addCell(l);
         }
 
@@ -227,14 +550,15 @@ public class PdfFieldUtils {
         answerCell.setBorder(Rectangle.NO_BORDER);
 
         // Desenha o quadrado com a resposta dentro
-        answerCell.setCellEvent(new TopLeftSquareEvent(ANSWER_BOX_SIZE, answer != null ? answer : ""));
+        answerCell.setCellEvent(answerBox(answerText(answer)));
+        markAnswerSlot(answerCell, fieldNumber, AnswerSlot.Kind.BOX);
 
         // Remove padding para o quadrado ficar no topo absoluto da célula
         answerCell.setPadding(0);
         answerCell.setPaddingTop(0);
 
         // Altura mínima para não cortar
-        answerCell.setMinimumHeight(ANSWER_BOX_SIZE + 2f);
+        answerCell.setMinimumHeight(ANSWER_CELL_HEIGHT);
 
         rightContent.addCell(answerCell);
 
@@ -248,12 +572,22 @@ public class PdfFieldUtils {
         PdfPCell mainCell = new PdfPCell(splitTable);
         configureMainCell(mainCell); // Borda redonda, padding 0
 
+        RenderMetrics.end(probe, RenderMetrics.Stage.BUILD, "legenda", fieldNumber);
         return mainCell;
     }
 
+    /** TIPO 1 com a resposta codificada na tabela {@code codes}. */
+    public static PdfPCell createFieldWithLegendAndAnswerBox(
+            String fieldNumber, String title, List<String> legendLines, byte answer, AnswerCodes codes,
+            float widthPercentage) {
+        return createFieldWithLegendAndAnswerBox(fieldNumber, title, legendLines, codes.decode(answer),
+                widthPercentage);
+    }
+
     /** TIPO 2: Descritivo (32) */
     public static PdfPCell createDescriptiveField(
             String fieldNumber, String title, String content, float widthPercentage, float minHeight) {
+        RenderMetrics.Probe probe = RenderMetrics.begin(RenderMetrics.Stage.BUILD);
 
         PdfPTable mainTable = new PdfPTable(1);
         mainTable.setWidthPercentage(100);
@@ -262,17 +596,20 @@ public class PdfFieldUtils {
         mainTable.addCell(createHeaderCell(fieldNumber, title));
 
         // Conteúdo
-        PdfPCell contentCell = new PdfPCell(new Phrase(content != null ? content : "", CONTENT_FONT));
+        PdfPCell contentCell = new PdfPCell(new Phrase(answerText(content), CONTENT_FONT));
+        markAnswerSlot(contentCell, fieldNumber, AnswerSlot.Kind.TEXT_BLOCK);
         contentCell.setBorder(Rectangle.NO_BORDER);
-        contentCell.setPaddingLeft(5f);
-        contentCell.setPaddingRight(5f);
-        contentCell.setPaddingBottom(5f);
+        contentCell.setPaddingTop(CONTENT_PADDING_TOP);
+        contentCell.setPaddingLeft(CONTENT_PADDING);
+        contentCell.setPaddingRight(CONTENT_PADDING);
+        contentCell.setPaddingBottom(CONTENT_PADDING);
         mainTable.addCell(contentCell);
 
         PdfPCell mainCell = new PdfPCell(mainTable);
         configureMainCell(mainCell);
         if (minHeight > 0)
             mainCell.setMinimumHeight(minHeight);
+        RenderMetrics.end(probe, RenderMetrics.Stage.BUILD, "descritivo", fieldNumber);
         return mainCell;
     }
 
@@ -281,24 +618,36 @@ public class PdfFieldUtils {
             String fieldNumber, String title, String legend, List<String> options,
             List<String> answers, int columns, float widthPercentage, boolean hasOther, String otherVal) {
 
-        PdfPTable mainTable = new PdfPTable(1);
-        mainTable.setWidthPercentage(100);
+        Phrase[] checks = new Phrase[options.size()];
+        for (int i = 0; i < checks.length; i++)
+            checks[i] = checkboxPhrase(answerText((answers != null && i < answers.size()) ? answers.get(i) : ""));
+        return createMultipleOptionsField(fieldNumber, title, legend, options, checks, columns, hasOther, otherVal);
+    }
 
-        // Header Personalizado para incluir Legenda na mesma linha
-        // Usamos Phrase para manter o modo texto e o alinhamento correto (igual ao createHeaderCell)
-        Phrase headerPhrase = new Phrase();
-        headerPhrase.add(new Chunk(title, TITLE_FONT));
-        headerPhrase.add(new Chunk("   " + legend, LEGEND_FONT));
+    /**
+     * TIPO 3 com as respostas codificadas: {@code answers[i]} é o valor de
+     * {@code codes} da opção i. Os quadradinhos usam as Phrases pré-montadas
+     * da tabela, sem criar objetos por opção.
+     */
+    public static PdfPCell createMultipleOptionsField(
+            String fieldNumber, String title, String legend, List<String> options,
+            byte[] answers, AnswerCodes codes, int columns, float widthPercentage, boolean hasOther,
+            String otherVal) {
 
-        PdfPCell headerCell = new PdfPCell(headerPhrase);
-        headerCell.setBorder(Rectangle.NO_BORDER);
-        headerCell.setCellEvent(new TopLeftSquareEvent(NUMBER_BOX_SIZE, fieldNumber));
-        headerCell.setPaddingLeft(NUMBER_BOX_SIZE + 5f); // Padding para o quadrado
-        headerCell.setPaddingTop(2f);
-        headerCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-        headerCell.setMinimumHeight(NUMBER_BOX_SIZE + 2f);
+        Phrase[] checks = new Phrase[options.size()];
+        for (int i = 0; i < checks.length; i++)
+            checks[i] = answerPhrase(answers, i, codes);
+        return createMultipleOptionsField(fieldNumber, title, legend, options, checks, columns, hasOther, otherVal);
+    }
+
+    private static PdfPCell createMultipleOptionsField(String fieldNumber, String title, String legend,
+            List<String> options, Phrase[] checks, int columns, boolean hasOther, String otherVal) {
+        RenderMetrics.Probe probe = RenderMetrics.begin(RenderMetrics.Stage.BUILD);
+
+        PdfPTable mainTable = new PdfPTable(1);
+        mainTable.setWidthPercentage(100);
 
-        mainTable.addCell(headerCell);
+        mainTable.addCell(createOptionsHeaderCell(fieldNumber, title, legend));
 
         // Grid de Opções
         float[] ws = new float[columns];
@@ -307,10 +656,8 @@ public class PdfFieldUtils {
         PdfPTable grid = new PdfPTable(ws);
         grid.setWidthPercentage(100);
 
-        for (int i = 0; i < options.size(); i++) {
-            String ans = (answers != null && i < answers.size()) ? answers.get(i) : "";
-            grid.addCell(createOptionWithCheckbox(options.get(i), ans));
-        }
+        for (int i = 0; i < options.size(); i++)
+            grid.addCell(createOptionWithCheckbox(options.get(i), checks[i], AnswerKeys.option(fieldNumber, i)));
         int rem = options.size() % columns;
         if (rem > 0) {
             for (int i = 0; i < (columns - rem); i++) {
@@ -337,8 +684,8 @@ public class PdfFieldUtils {
 
             PdfPCell ck = new PdfPCell(new Phrase(""));
             ck.setBorder(Rectangle.NO_BORDER);
-            ck.setCellEvent(new CenteredSquareEvent(CHECKBOX_SIZE));
-            ck.setFixedHeight(CHECKBOX_SIZE + 4f);
+            ck.setCellEvent(CHECKBOX_SQUARE);
+            ck.setFixedHeight(OPTION_ROW_HEIGHT);
             ck.setHorizontalAlignment(Element.ALIGN_CENTER);
             ck.setVerticalAlignment(Element.ALIGN_MIDDLE);
             firstColTable.addCell(ck);
@@ -356,7 +703,8 @@ public class PdfFieldUtils {
 
             // Colunas restantes: mescladas para o campo de input
             if (columns > 1) {
-                PdfPCell v = new PdfPCell(new Phrase(otherVal != null ? otherVal : "", CONTENT_FONT));
+                PdfPCell v = new PdfPCell(new Phrase(answerText(otherVal), CONTENT_FONT));
+                markAnswerSlot(v, AnswerKeys.other(fieldNumber), AnswerSlot.Kind.TEXT_LINE);
                 v.setBorder(Rectangle.BOTTOM);
                 v.setBorderWidth(0.5f);
                 v.setPaddingLeft(3f);
@@ -375,17 +723,252 @@ public class PdfFieldUtils {
 
         PdfPCell mainCell = new PdfPCell(mainTable);
         configureMainCell(mainCell);
+        RenderMetrics.end(probe, RenderMetrics.Stage.BUILD, "opcoes", fieldNumber);
         return mainCell;
     }
 
-    private static PdfPCell createOptionWithCheckbox(String txt, String ans) {
+    /**
+     * TIPO 3 (plano): mesmo resultado visual de {@link #createMultipleOptionsField},
+     * mas o grid inteiro (quadrados, respostas, rótulos e "Outros") é desenhado
+     * por um único evento de célula, sem tabelas aninhadas por opção.
+     * Cada rótulo ocupa uma linha; rótulos que não cabem na coluna têm a fonte
+     * reduzida até caber.
+     */
+    public static PdfPCell createMultipleOptionsFieldFlat(
+            String fieldNumber, String title, String legend, List<String> options,
+            List<String> answers, int columns, float widthPercentage, boolean hasOther, String otherVal) {
+
+        String[] codes = new String[options.size()];
+        for (int i = 0; i < codes.length; i++)
+            codes[i] = answerText((answers != null && i < answers.size()) ? answers.get(i) : "");
+        return createMultipleOptionsFieldFlat(fieldNumber, title, legend, options, codes, columns, hasOther,
+                otherVal);
+    }
+
+    /** TIPO 3 (plano) com as respostas codificadas na tabela {@code codes}. */
+    public static PdfPCell createMultipleOptionsFieldFlat(
+            String fieldNumber, String title, String legend, List<String> options,
+            byte[] answers, AnswerCodes codes, int columns, float widthPercentage, boolean hasOther,
+            String otherVal) {
+
+        // Os textos vêm da tabela: nenhum String novo por opção
+        String[] texts = new String[options.size()];
+        for (int i = 0; i < texts.length; i++)
+            texts[i] = (answers != null && i < answers.length) ? answerText(codes.decode(answers[i])) : "";
+        return createMultipleOptionsFieldFlat(fieldNumber, title, legend, options, texts, columns, hasOther,
+                otherVal);
+    }
+
+    private static PdfPCell createMultipleOptionsFieldFlat(String fieldNumber, String title, String legend,
+            List<String> options, String[] codes, int columns, boolean hasOther, String otherVal) {
+        RenderMetrics.Probe probe = RenderMetrics.begin(RenderMetrics.Stage.BUILD);
+
+        PdfPTable mainTable = new PdfPTable(1);
+        mainTable.setWidthPercentage(100);
+        mainTable.addCell(createOptionsHeaderCell(fieldNumber, title, legend));
+
+        int size = options.size();
+        String[] labels = options.toArray(new String[0]);
+
+        PdfPCell gridCell = new PdfPCell();
+        gridCell.setBorder(Rectangle.NO_BORDER);
+        gridCell.setPadding(0);
+        gridCell.setFixedHeight(OptionGridEvent.height(size, columns, hasOther));
+        gridCell.setCellEvent(new OptionGridEvent(fieldNumber, labels, codes, columns,
+                hasOther, answerText(otherVal), SKELETON_SLOTS.get()));
+        mainTable.addCell(gridCell);
+
+        PdfPCell mainCell = new PdfPCell(mainTable);
+        configureMainCell(mainCell);
+        RenderMetrics.end(probe, RenderMetrics.Stage.BUILD, "opcoes", fieldNumber);
+        return mainCell;
+    }
+
+    /**
+     * TIPO 3 (divisível): para listas com centenas ou milhares de opções
+     * (painéis de exames, municípios). Em vez de uma célula, devolve um campo
+     * adicionado direto ao documento com {@link SplittableOptionsField#addTo},
+     * uma linha do grid por linha de tabela: o campo pode ser dividido entre
+     * páginas, repetindo o cabeçalho (número, título e legenda) em cada uma.
+     */
+    public static SplittableOptionsField createSplittableOptionsField(
+            String fieldNumber, String title, String legend, List<String> options,
+            List<String> answers, int columns, boolean hasOther, String otherVal) {
+
+        String[] codes = new String[options.size()];
+        for (int i = 0; i < codes.length; i++)
+            codes[i] = answerText((answers != null && i < answers.size()) ? answers.get(i) : "");
+        return new SplittableOptionsField(fieldNumber, title, legend, options.toArray(new String[0]), codes,
+                columns, hasOther, answerText(otherVal), SKELETON_SLOTS.get());
+    }
+
+    /** TIPO 3 (divisível) com as respostas codificadas na tabela {@code codes}. */
+    public static SplittableOptionsField createSplittableOptionsField(
+            String fieldNumber, String title, String legend, List<String> options,
+            byte[] answers, AnswerCodes codes, int columns, boolean hasOther, String otherVal) {
+
+        String[] texts = new String[options.size()];
+        for (int i = 0; i < texts.length; i++)
+            texts[i] = (answers != null && i < answers.length) ? answerText(codes.decode(answers[i])) : "";
+        return new SplittableOptionsField(fieldNumber, title, legend, options.toArray(new String[0]), texts,
+                columns, hasOther, answerText(otherVal), SKELETON_SLOTS.get());
+    }
+
+    /** Cabeçalho do campo divisível (repetido a cada página), com as laterais da borda. */
+    static PdfPCell splittableHeaderCell(String fieldNumber, String title, String legend) {
+        PdfPCell cell = createOptionsHeaderCell(fieldNumber, title, legend);
+        cell.setCellEvent(SIDE_BORDERS);
+        return cell;
+    }
+
+    /**
+     * Uma linha do grid do campo divisível. A última fecha a borda arredondada,
+     * com o mesmo espaço embaixo de {@link #configureMainCell}.
+     */
+    static PdfPCell splittableRowCell(OptionGridEvent grid, float height, boolean last) {
+        PdfPCell cell = new PdfPCell();
+        cell.setBorder(Rectangle.NO_BORDER);
+        cell.setPadding(0);
+        if (!last) {
+            cell.setFixedHeight(height);
+            cell.setCellEvent(SIDE_BORDERS);
+            cell.setCellEvent(grid);
+            return cell;
+        }
+        cell.setFixedHeight(height + MAIN_BOTTOM_PADDING);
+        cell.setCellEvent(ROUND_BOTTOM_BORDER);
+        cell.setCellEvent((c, position, canvases) -> grid.cellLayout(c, new Rectangle(position.getLeft(),
+                position.getBottom() + MAIN_BOTTOM_PADDING, position.getRight(), position.getTop()), canvases));
+        return cell;
+    }
+
+    /**
+     * Desenha o grid de opções com a mesma geometria das tabelas aninhadas de
+     * {@link #createMultipleOptionsField}: recuo de 5pt, colunas iguais,
+     * quadrado em 15% da coluna e linhas de {@code CHECKBOX_SIZE + 4}.
+     */
+    static class OptionGridEvent implements PdfPCellEvent {
+        private final String fieldNumber;
+        private final String[] labels;
+        private final String[] codes;
+        private final int first;
+        private final int columns;
+        private final boolean hasOther;
+        private final String otherVal;
+        private final List<AnswerSlot> slots;
+
+        OptionGridEvent(String fieldNumber, String[] labels, String[] codes, int columns,
+                boolean hasOther, String otherVal, List<AnswerSlot> slots) {
+            this(fieldNumber, labels, codes, 0, columns, hasOther, otherVal, slots);
+        }
+
+        /** Grid de parte das opções: {@code labels[0]} é a opção {@code first} do campo. */
+        OptionGridEvent(String fieldNumber, String[] labels, String[] codes, int first, int columns,
+                boolean hasOther, String otherVal, List<AnswerSlot> slots) {
+            this.fieldNumber = fieldNumber;
+            this.labels = labels;
+            this.codes = codes;
+            this.first = first;
+            this.columns = columns;
+            this.hasOther = hasOther;
+            this.otherVal = otherVal;
+            this.slots = slots;
+        }
+
+        static float height(int options, int columns, boolean hasOther) {
+            int rows = (options + columns - 1) / columns;
+            return rows * OPTION_ROW_HEIGHT + (hasOther ? OTHER_GAP + OPTION_ROW_HEIGHT : 0);
+        }
+
+        @Override
+        public void cellLayout(PdfPCell cell, Rectangle position, PdfContentByte[] canvases) {
+            RenderMetrics.Probe probe = RenderMetrics.begin(RenderMetrics.Stage.LAYOUT);
+            PdfContentByte lines = canvases[PdfPTable.LINECANVAS];
+            PdfContentByte text = canvases[PdfPTable.TEXTCANVAS];
+            int page = text.getPdfWriter().getPageNumber();
+
+            float left = position.getLeft() + OPTION_INDENT;
+            float colWidth = (position.getRight() - left) / columns;
+            float boxWidth = colWidth * 0.15f;
+            float labelWidth = colWidth * 0.85f - 4f;
+            float top = position.getTop();
+            int rows = (labels.length + columns - 1) / columns;
+
+            // Se a linha da tabela externa for mais alta (campo vizinho maior),
+            // a última linha do grid se estende, como nas tabelas aninhadas
+            float extra = Math.max(0, position.getHeight() - height(labels.length, columns, hasOther));
+
+            lines.saveState();
+            lines.setLineWidth(LINE_WIDTH);
+            lines.setColorStroke(BaseColor.BLACK);
+
+            for (int i = 0; i < labels.length; i++) {
+                float x = left + (i % columns) * colWidth;
+                int row = i / columns;
+                float rowTop = top - row * OPTION_ROW_HEIGHT;
+                float rowHeight = OPTION_ROW_HEIGHT + (!hasOther && row == rows - 1 ? extra : 0);
+                drawOption(lines, text, x, rowTop, rowHeight, boxWidth, labelWidth, labels[i], codes[i]);
+                if (slots != null)
+                    slots.add(new AnswerSlot(AnswerKeys.option(fieldNumber, first + i), AnswerSlot.Kind.CHECKBOX, page,
+                            new Rectangle(x, rowTop - rowHeight, x + boxWidth, rowTop)));
+            }
+
+            if (hasOther) {
+                float rowTop = top - rows * OPTION_ROW_HEIGHT - OTHER_GAP;
+                float rowHeight = OPTION_ROW_HEIGHT + extra;
+                drawOption(lines, text, left, rowTop, rowHeight, boxWidth, labelWidth, "Outros:", "");
+                if (columns > 1) {
+                    // Linha inferior do campo de texto, ocupando as colunas restantes
+                    float rowBottom = rowTop - rowHeight;
+                    lines.moveTo(left + colWidth, rowBottom);
+                    lines.lineTo(position.getRight(), rowBottom);
+                    Rectangle valueRect = new Rectangle(left + colWidth, rowBottom, position.getRight(), rowTop);
+                    if (slots != null)
+                        slots.add(new AnswerSlot(AnswerKeys.other(fieldNumber), AnswerSlot.Kind.TEXT_LINE, page,
+                                valueRect));
+                    else if (!otherVal.isEmpty())
+                        ColumnText.showTextAligned(text, Element.ALIGN_LEFT, new Phrase(otherVal, CONTENT_FONT),
+                                valueRect.getLeft() + 3f, rowTop - rowHeight / 2 - TEXT_LINE_OFFSET, 0);
+                }
+            }
+
+            lines.stroke();
+            lines.restoreState();
+            RenderMetrics.end(probe, RenderMetrics.Stage.LAYOUT, "grid", fieldNumber);
+        }
+
+        private static void drawOption(PdfContentByte lines, PdfContentByte text, float x, float rowTop,
+                float rowHeight, float boxWidth, float labelWidth, String label, String code) {
+            float centerX = x + boxWidth / 2;
+            float centerY = rowTop - rowHeight / 2;
+            if (CompactOutput.isEnabled(lines))
+                drawSquare(lines, centerX - CHECKBOX_SIZE / 2, centerY - CHECKBOX_SIZE / 2, CHECKBOX_SIZE, false);
+            else
+                lines.rectangle(centerX - CHECKBOX_SIZE / 2, centerY - CHECKBOX_SIZE / 2, CHECKBOX_SIZE,
+                        CHECKBOX_SIZE);
+
+            if (!code.isEmpty())
+                ColumnText.showTextAligned(text, Element.ALIGN_CENTER, checkboxPhrase(code),
+                        centerX, centerY - CHECKBOX_TEXT_OFFSET, 0);
+
+            Font font = LEGEND_FONT;
+            float width = font.getCalculatedBaseFont(false).getWidthPoint(label, font.getSize());
+            if (width > labelWidth)
+                font = font(font.getSize() * labelWidth / width, font.getStyle());
+            ColumnText.showTextAligned(text, Element.ALIGN_LEFT, new Phrase(label, font),
+                    x + boxWidth + 2f, centerY - CHECKBOX_TEXT_OFFSET, 0);
+        }
+    }
+
+    private static PdfPCell createOptionWithCheckbox(String txt, Phrase ans, String key) {
         PdfPTable t = new PdfPTable(new float[] { 15f, 85f });
         t.setWidthPercentage(100);
 
-        PdfPCell ck = new PdfPCell(new Phrase(ans != null ? ans : "", new Font(Font.FontFamily.HELVETICA, 7)));
+        PdfPCell ck = new PdfPCell(ans);
         ck.setBorder(Rectangle.NO_BORDER);
-        ck.setCellEvent(new CenteredSquareEvent(CHECKBOX_SIZE));
-        ck.setFixedHeight(CHECKBOX_SIZE + 4f);
+        ck.setCellEvent(CHECKBOX_SQUARE);
+        markAnswerSlot(ck, key, AnswerSlot.Kind.CHECKBOX);
+        ck.setFixedHeight(OPTION_ROW_HEIGHT);
         ck.setHorizontalAlignment(Element.ALIGN_CENTER);
         ck.setVerticalAlignment(Element.ALIGN_MIDDLE);
         t.addCell(ck);
@@ -0,0 +1,212 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.io.RandomAccessSourceFactory;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfSmartCopy;
+import com.itextpdf.text.pdf.RandomAccessFileOrArray;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Junta muitos PDFs (um por registro) em um só, em árvore e em paralelo.
+ * <p>
+ * As entradas são divididas em grupos de até {@code fanIn} arquivos; cada
+ * grupo é juntado por uma thread em um arquivo temporário, e o processo se
+ * repete sobre os temporários até sobrar um grupo, que é gravado na saída. Os
+ * arquivos são lidos sob demanda (sem carregar o PDF inteiro) e os resultados
+ * intermediários ficam em disco, não no heap.
+ * <p>
+ * A cópia usa {@link PdfSmartCopy}, que grava uma única vez os objetos
+ * idênticos entre as entradas (fontes, XObjects compartilhados de
+ * {@link CompactOutput}), então a saída fica bem menor que a soma das entradas.
+ * A ordem das páginas segue a ordem da lista.
+ */
+public final class PdfTreeMerger {
+
+    private int fanIn;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private boolean fullCompression = true;
+    private Path tempDirectory;
+
+    /**
+     * Máximo de arquivos juntados por uma mesma cópia. Por padrão as entradas
+     * são divididas igualmente entre as threads, o que dá uma árvore de dois
+     * níveis: cada página é copiada no máximo duas vezes.
+     */
+    public PdfTreeMerger setFanIn(int fanIn) {
+        if (fanIn < 2)
+            throw new IllegalArgumentException("fanIn deve ser pelo menos 2");
+        this.fanIn = fanIn;
+        return this;
+    }
+
+    /** Threads de junção simultâneas (padrão: número de processadores). */
+    public PdfTreeMerger setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /** Compressão completa na saída (padrão: ativa). */
+    public PdfTreeMerger setFullCompression(boolean fullCompression) {
+        this.fullCompression = fullCompression;
+        return this;
+    }
+
+    /** Diretório dos arquivos intermediários (padrão: o temporário do sistema). */
+    public PdfTreeMerger setTempDirectory(Path tempDirectory) {
+        this.tempDirectory = tempDirectory;
+        return this;
+    }
+
+    public MergeReport merge(List<Path> inputs, Path output) throws IOException, DocumentException {
+        if (inputs.isEmpty())
+            throw new IllegalArgumentException("Nenhum arquivo para juntar");
+        long start = System.nanoTime();
+        long inputBytes = 0;
+        for (Path input : inputs)
+            inputBytes += Files.size(input);
+
+        int fanIn = this.fanIn > 0 ? this.fanIn : Math.max(2, (inputs.size() + parallelism - 1) / parallelism);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        List<Path> level = inputs;
+        List<Path> temporaries = new ArrayList<>();
+        int levels = 0;
+        long pages;
+        try {
+            while (level.size() > fanIn) {
+                List<Future<Path>> merged = new ArrayList<>();
+                for (int i = 0; i < level.size(); i += fanIn) {
+                    List<Path> group = level.subList(i, Math.min(i + fanIn, level.size()));
+                    merged.add(executor.submit(() -> {
+                        Path tmp = tempDirectory == null
+                                ? Files.createTempFile("merge", ".pdf")
+                                : Files.createTempFile(tempDirectory, "merge", ".pdf");
+                        try {
+                            mergeGroup(group, tmp, false);
+                        } catch (IOException | DocumentException | RuntimeException e) {
+                            Files.deleteIfExists(tmp);
+                            throw e;
+                        }
+                        return tmp;
+                    }));
+                }
+                // Espera todos os grupos, mesmo depois de uma falha, para que os
+                // temporários dos que terminaram também sejam apagados
+                List<Path> next = new ArrayList<>(merged.size());
+                Exception failure = null;
+                for (Future<Path> f : merged) {
+                    try {
+                        next.add(await(f));
+                    } catch (IOException | DocumentException | RuntimeException e) {
+                        if (failure == null)
+                            failure = e;
+                        else
+                            failure.addSuppressed(e);
+                    }
+                }
+                // Os intermediários do nível anterior já foram consumidos
+                deleteAll(temporaries);
+                temporaries = next;
+                if (failure instanceof IOException)
+                    throw (IOException) failure;
+                if (failure instanceof DocumentException)
+                    throw (DocumentException) failure;
+                if (failure != null)
+                    throw (RuntimeException) failure;
+                level = next;
+                levels++;
+            }
+            pages = mergeGroup(level, output, fullCompression);
+            levels++;
+        } finally {
+            executor.shutdownNow();
+            deleteAll(temporaries);
+        }
+        return new MergeReport(inputs.size(), pages, inputBytes, Files.size(output), levels,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Junta os arquivos do grupo em {@code target}. Retorna o número de páginas.
+     * Os intermediários não usam compressão completa: com leitura parcial, cada
+     * objeto lido de um object stream obriga a descomprimir o stream inteiro.
+     */
+    private long mergeGroup(List<Path> group, Path target, boolean compress) throws IOException, DocumentException {
+        long pages = 0;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target), 64 * 1024)) {
+            Document document = new Document();
+            PdfSmartCopy copy = new PdfSmartCopy(document, out);
+            if (compress)
+                copy.setFullCompression();
+            document.open();
+            RandomAccessSourceFactory sources = new RandomAccessSourceFactory();
+            for (Path input : group) {
+                // Leitura parcial: os objetos são lidos do arquivo quando copiados
+                PdfReader reader = new PdfReader(
+                        new RandomAccessFileOrArray(sources.createBestSource(input.toString())), null);
+                try {
+                    for (int page = 1; page <= reader.getNumberOfPages(); page++)
+                        copy.addPage(copy.getImportedPage(reader, page));
+                    pages += reader.getNumberOfPages();
+                    copy.freeReader(reader);
+                } finally {
+                    reader.close();
+                }
+            }
+            document.close();
+        }
+        return pages;
+    }
+
+    private static Path await(Future<Path> future) throws IOException, DocumentException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Junção interrompida", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof DocumentException)
+                throw (DocumentException) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static void deleteAll(List<Path> files) throws IOException {
+        for (Path f : files)
+            Files.deleteIfExists(f);
+    }
+
+    /**
+     * Uso: {@code PdfTreeMerger <saída.pdf> <diretório ou arquivos de entrada...>}.
+     * Os PDFs de um diretório são juntados em ordem de nome.
+     */
+    public static void main(String[] args) throws IOException, DocumentException {
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            Path p = Path.of(args[i]);
+            if (Files.isDirectory(p)) {
+                try (var list = Files.list(p)) {
+                    list.filter(f -> f.toString().endsWith(".pdf")).sorted().forEach(inputs::add);
+                }
+            } else {
+                inputs.add(p);
+            }
+        }
+        System.out.println(new PdfTreeMerger().merge(inputs, Path.of(args[0])));
+    }
+}
@@ -0,0 +1,123 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.ANSWER_BOX_SIZE;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.BOX_TEXT_OFFSET;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.CHECKBOX_FONT_SIZE;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.CHECKBOX_SIZE;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.CHECKBOX_TEXT_OFFSET;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.CORNER_RADIUS;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.LINE_WIDTH;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.NUMBER_BOX_SIZE;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.NUMBER_FONT_SIZE;
+import static com.vitorhugo1207.pdffieldssisanutils.PdfFieldUtils.TITLE_FONT_SIZE;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Backend leve: desenha as primitivas direto no content stream com
+ * {@link RawPdfWriter}, sem montar PdfPTable nem passar pelo
+ * {@code PdfWriter} do iText.
+ * <p>
+ * Usa sempre a Helvetica padrão (ignora {@link EmbeddedFonts}); textos fora
+ * do WinAnsi (CP1252) não são escritos.
+ */
+public final class RawPdfBackend implements RenderBackend {
+
+    @Override
+    public String getName() {
+        return "raw";
+    }
+
+    @Override
+    public Canvas open(OutputStream out, float width, float height) throws IOException {
+        return new RawCanvas(new RawPdfWriter(out, width, height));
+    }
+
+    private static final class RawCanvas implements Canvas {
+        private final RawPdfWriter pdf;
+
+        RawCanvas(RawPdfWriter pdf) {
+            this.pdf = pdf;
+        }
+
+        @Override
+        public float textWidth(boolean bold, float size, String text) {
+            return RawPdfWriter.width(bold ? RawPdfWriter.FONT_BOLD : RawPdfWriter.FONT_REGULAR, size, text);
+        }
+
+        @Override
+        public void numberBox(float x, float top, String number) {
+            box(x, top, NUMBER_BOX_SIZE, number);
+        }
+
+        @Override
+        public void title(float x, float baseline, String title) {
+            pdf.text(RawPdfWriter.FONT_BOLD, TITLE_FONT_SIZE, x, baseline, title);
+        }
+
+        @Override
+        public void text(float x, float baseline, float size, String text) {
+            pdf.text(RawPdfWriter.FONT_REGULAR, size, x, baseline, text);
+        }
+
+        @Override
+        public void answerBox(float x, float top, String answer) {
+            box(x, top, ANSWER_BOX_SIZE, answer);
+        }
+
+        /** Quadrado branco com o texto em negrito centralizado. */
+        private void box(float x, float top, float size, String text) {
+            pdf.whiteBox(x, top - size, size, size);
+            if (!text.isEmpty())
+                centered(RawPdfWriter.FONT_BOLD, NUMBER_FONT_SIZE, x + size / 2, top - size / 2 - BOX_TEXT_OFFSET,
+                        text);
+        }
+
+        @Override
+        public void checkbox(float x, float y, String code) {
+            pdf.rectangle(x - CHECKBOX_SIZE / 2, y - CHECKBOX_SIZE / 2, CHECKBOX_SIZE, CHECKBOX_SIZE).stroke();
+            if (!code.isEmpty())
+                centered(RawPdfWriter.FONT_REGULAR, CHECKBOX_FONT_SIZE, x, y - CHECKBOX_TEXT_OFFSET, code);
+        }
+
+        private void centered(int font, float size, float centerX, float baseline, String text) {
+            pdf.text(font, size, centerX - RawPdfWriter.width(font, size, text) / 2, baseline, text);
+        }
+
+        /** Mesmo caminho de {@code PdfFieldUtils.drawRoundBottomBorder}: laterais e base arredondada. */
+        @Override
+        public void border(float x0, float y0, float x1, float y1) {
+            float adj = LINE_WIDTH / 2;
+            float left = x0 + adj;
+            float right = x1 - adj;
+            float top = y1 - adj;
+            float bottom = y0 + adj;
+            float r = CORNER_RADIUS;
+            float b = 0.552284749831f * r;
+
+            pdf.moveTo(left, top)
+                    .lineTo(left, bottom + r)
+                    .curveTo(left, bottom + r - b, left + r - b, bottom, left + r, bottom)
+                    .lineTo(right - r, bottom)
+                    .curveTo(right - r + b, bottom, right, bottom + r - b, right, bottom + r)
+                    .lineTo(right, top)
+                    .stroke();
+        }
+
+        @Override
+        public void line(float x0, float y0, float x1, float y1) {
+            pdf.moveTo(x0, y0).lineTo(x1, y1).stroke();
+        }
+
+        @Override
+        public void newPage() throws IOException {
+            pdf.newPage();
+        }
+
+        @Override
+        public void close() throws IOException {
+            pdf.close();
+        }
+    }
+}
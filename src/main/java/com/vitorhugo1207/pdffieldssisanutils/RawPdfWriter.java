@@ -0,0 +1,246 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import com.itextpdf.text.pdf.BaseFont;
+
+/**
+ * Escritor mínimo de PDF: páginas com um content stream comprimido e as
+ * fontes padrão Helvetica e Helvetica-Bold (WinAnsi, sem embutir). Textos são
+ * codificados em CP1252 e medidos com as métricas que o iText usa para essas
+ * fontes; caracteres fora do CP1252 são omitidos, como no iText. Os objetos
+ * são escritos assim que cada página termina; só a árvore de páginas, o
+ * catálogo e a tabela de referências ficam para o fechamento.
+ */
+final class RawPdfWriter {
+
+    static final int FONT_REGULAR = 0;
+    static final int FONT_BOLD = 1;
+
+    // Objetos fixos: 1 catálogo, 2 árvore de páginas, 3 e 4 fontes
+    private static final int CATALOG = 1;
+    private static final int PAGES = 2;
+    private static final int FIRST_FREE = 5;
+
+    private static final BaseFont REGULAR;
+    private static final BaseFont BOLD;
+
+    static {
+        try {
+            REGULAR = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.CP1252, BaseFont.NOT_EMBEDDED);
+            BOLD = BaseFont.createFont(BaseFont.HELVETICA_BOLD, BaseFont.CP1252, BaseFont.NOT_EMBEDDED);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final CountingOutputStream out;
+    private final float pageWidth;
+    private final float pageHeight;
+
+    private long[] offsets = new long[64];
+    private int nextObject = FIRST_FREE;
+    private int[] pageObjects = new int[8];
+    private int pageCount;
+
+    private final StringBuilder content = new StringBuilder(8 * 1024);
+    private boolean pageOpen;
+    private final Deflater deflater = new Deflater();
+    private byte[] raw = new byte[16 * 1024];
+    private byte[] compressed = new byte[16 * 1024];
+
+    RawPdfWriter(OutputStream out, float pageWidth, float pageHeight) throws IOException {
+        this.out = new CountingOutputStream(out);
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        // Bytes acima de 127 no comentário indicam conteúdo binário
+        this.out.write(new byte[] { '%', 'P', 'D', 'F', '-', '1', '.', '4', '\n', '%', (byte) 0xe2, (byte) 0xe3,
+                (byte) 0xcf, (byte) 0xd3, '\n' });
+        writeObject(3, "<</Type/Font/Subtype/Type1/BaseFont/Helvetica/Encoding/WinAnsiEncoding>>");
+        writeObject(4, "<</Type/Font/Subtype/Type1/BaseFont/Helvetica-Bold/Encoding/WinAnsiEncoding>>");
+    }
+
+    // --- CONTEÚDO DA PÁGINA ---
+
+    private void ensurePage() {
+        if (!pageOpen) {
+            pageOpen = true;
+            content.setLength(0);
+            content.append("0.5 w\n");
+        }
+    }
+
+    RawPdfWriter moveTo(float x, float y) {
+        ensurePage();
+        num(x).num(y).op("m");
+        return this;
+    }
+
+    RawPdfWriter lineTo(float x, float y) {
+        num(x).num(y).op("l");
+        return this;
+    }
+
+    RawPdfWriter curveTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+        num(x1).num(y1).num(x2).num(y2).num(x3).num(y3).op("c");
+        return this;
+    }
+
+    RawPdfWriter rectangle(float x, float y, float w, float h) {
+        ensurePage();
+        num(x).num(y).num(w).num(h).op("re");
+        return this;
+    }
+
+    void stroke() {
+        op("S");
+    }
+
+    /** Retângulo com fundo branco e borda preta. */
+    void whiteBox(float x, float y, float w, float h) {
+        ensurePage();
+        content.append("1 g ");
+        num(x).num(y).num(w).num(h).op("re");
+        op("B");
+        content.append("0 g\n");
+    }
+
+    /** Texto em (x, y), na linha de base. */
+    void text(int font, float size, float x, float y, String text) {
+        ensurePage();
+        content.append("BT /F").append(font + 1).append(' ');
+        num(size).op("Tf");
+        num(x).num(y).op("Td");
+        content.append('(');
+        // Cada char do content stream vira um byte em newPage()
+        for (byte b : REGULAR.convertToBytes(text)) {
+            if (b == '(' || b == ')' || b == '\\')
+                content.append('\\');
+            content.append((char) (b & 0xff));
+        }
+        content.append(") Tj ET\n");
+    }
+
+    /** Largura de {@code text} na fonte {@link #FONT_REGULAR} ou {@link #FONT_BOLD}. */
+    static float width(int font, float size, String text) {
+        return (font == FONT_BOLD ? BOLD : REGULAR).getWidthPoint(text, size);
+    }
+
+    private RawPdfWriter num(float v) {
+        long scaled = Math.round(v * 100d);
+        if (scaled < 0) {
+            content.append('-');
+            scaled = -scaled;
+        }
+        content.append(scaled / 100);
+        int frac = (int) (scaled % 100);
+        if (frac != 0) {
+            content.append('.').append(frac / 10);
+            if (frac % 10 != 0)
+                content.append(frac % 10);
+        }
+        content.append(' ');
+        return this;
+    }
+
+    private void op(String operator) {
+        content.append(operator).append('\n');
+    }
+
+    // --- OBJETOS ---
+
+    /** Fecha a página atual (se houver conteúdo) e começa outra. */
+    void newPage() throws IOException {
+        if (!pageOpen)
+            return;
+        pageOpen = false;
+
+        int length = content.length();
+        if (raw.length < length)
+            raw = new byte[Math.max(length, raw.length * 2)];
+        for (int i = 0; i < length; i++)
+            raw[i] = (byte) content.charAt(i);
+        deflater.reset();
+        deflater.setInput(raw, 0, length);
+        deflater.finish();
+        int size = 0;
+        while (!deflater.finished()) {
+            if (size == compressed.length)
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            size += deflater.deflate(compressed, size, compressed.length - size);
+        }
+
+        int contents = nextObject++;
+        beginObject(contents);
+        write("<</Length " + size + "/Filter/FlateDecode>>\nstream\n");
+        out.write(compressed, 0, size);
+        write("\nendstream\nendobj\n");
+
+        int page = nextObject++;
+        writeObject(page, "<</Type/Page/Parent " + PAGES + " 0 R/MediaBox[0 0 " + fmt(pageWidth) + " "
+                + fmt(pageHeight) + "]/Resources<</Font<</F1 3 0 R/F2 4 0 R>>>>/Contents " + contents + " 0 R>>");
+        if (pageCount == pageObjects.length)
+            pageObjects = Arrays.copyOf(pageObjects, pageCount * 2);
+        pageObjects[pageCount++] = page;
+    }
+
+    /** Conclui o documento e fecha o stream, como o iText faz. */
+    void close() throws IOException {
+        newPage();
+        if (pageCount == 0) {
+            // PDF precisa de ao menos uma página
+            ensurePage();
+            newPage();
+        }
+        StringBuilder kids = new StringBuilder("<</Type/Pages/Kids[");
+        for (int i = 0; i < pageCount; i++)
+            kids.append(pageObjects[i]).append(" 0 R ");
+        kids.append("]/Count ").append(pageCount).append(">>");
+        writeObject(PAGES, kids.toString());
+        writeObject(CATALOG, "<</Type/Catalog/Pages " + PAGES + " 0 R>>");
+
+        long xref = out.getCount();
+        StringBuilder table = new StringBuilder(32 + nextObject * 20);
+        table.append("xref\n0 ").append(nextObject).append("\n0000000000 65535 f \n");
+        for (int i = 1; i < nextObject; i++) {
+            String offset = Long.toString(offsets[i]);
+            for (int pad = offset.length(); pad < 10; pad++)
+                table.append('0');
+            table.append(offset).append(" 00000 n \n");
+        }
+        table.append("trailer\n<</Size ").append(nextObject).append("/Root ").append(CATALOG)
+                .append(" 0 R>>\nstartxref\n").append(xref).append("\n%%EOF\n");
+        write(table.toString());
+        deflater.end();
+        out.close();
+    }
+
+    int getPageCount() {
+        return pageCount + (pageOpen ? 1 : 0);
+    }
+
+    private void writeObject(int number, String body) throws IOException {
+        beginObject(number);
+        write(body);
+        write("\nendobj\n");
+    }
+
+    private void beginObject(int number) throws IOException {
+        if (number >= offsets.length)
+            offsets = Arrays.copyOf(offsets, Math.max(number + 1, offsets.length * 2));
+        offsets[number] = out.getCount();
+        write(number + " 0 obj\n");
+    }
+
+    private void write(String s) throws IOException {
+        out.write(s.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static String fmt(float v) {
+        return v == (int) v ? Integer.toString((int) v) : Float.toString(v);
+    }
+}
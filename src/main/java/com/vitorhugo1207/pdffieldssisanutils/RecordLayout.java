@@ -0,0 +1,14 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+
+/**
+ * Monta as linhas de um registro em um documento já aberto, usando os
+ * métodos de {@link PdfFieldUtils} (como faz {@link Main}).
+ */
+@FunctionalInterface
+public interface RecordLayout<R> {
+
+    void compose(Document document, R record) throws DocumentException;
+}
@@ -0,0 +1,72 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.pdf.PdfWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Gera o PDF completo de um registro no stream informado.
+ * Implementações devem poder ser chamadas por várias threads ao mesmo tempo.
+ */
+@FunctionalInterface
+public interface RecordRenderer<R> {
+
+    void render(R record, OutputStream out) throws DocumentException, IOException;
+
+    /**
+     * Um documento por registro, em A4 com margens de 20pt (como em {@link Main}).
+     */
+    static <R> RecordRenderer<R> of(RecordLayout<R> layout) {
+        return (record, out) -> {
+            Document document = new Document(PageSize.A4, 20, 20, 20, 20);
+            PdfWriter.getInstance(document, out);
+            document.open();
+            layout.compose(document, record);
+            document.close();
+        };
+    }
+
+    /**
+     * Como {@link #of(RecordLayout)}, com compressão completa. Um único
+     * formulário não repete gráficos o bastante para compensar XObjects
+     * compartilhados (ver {@link CompactOutput#enable(PdfWriter, boolean)}).
+     */
+    static <R> RecordRenderer<R> compact(RecordLayout<R> layout) {
+        return (record, out) -> {
+            Document document = new Document(PageSize.A4, 20, 20, 20, 20);
+            CompactOutput.enable(PdfWriter.getInstance(document, out), false);
+            document.open();
+            layout.compose(document, record);
+            document.close();
+        };
+    }
+
+    /**
+     * Como {@link #of(RecordLayout)}, com saída determinística: os mesmos
+     * registros geram os mesmos bytes (ver {@link DeterministicOutput}). O
+     * documento é montado em memória antes de ser copiado para {@code out}.
+     */
+    static <R> RecordRenderer<R> deterministic(RecordLayout<R> layout) {
+        return (record, out) -> {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(16 * 1024);
+            Document document = new Document(PageSize.A4, 20, 20, 20, 20);
+            DeterministicOutput.enable(PdfWriter.getInstance(document, buffer));
+            document.open();
+            layout.compose(document, record);
+            document.close();
+            byte[] pdf = DeterministicOutput.fixSubsetTags(buffer.toByteArray());
+            out.write(DeterministicOutput.fixDocumentId(pdf));
+        };
+    }
+
+    /** Preenche um esqueleto pré-renderizado com as respostas do registro. */
+    static RecordRenderer<Map<String, String>> of(FormSkeleton skeleton) {
+        return (answers, out) -> skeleton.fill(answers, out);
+    }
+}
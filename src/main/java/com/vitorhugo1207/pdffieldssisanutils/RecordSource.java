@@ -0,0 +1,46 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Registros lidos sob demanda de uma exportação do SINAN. Pode ser passado
+ * direto para {@link BatchRenderer} ou {@link BulkDocumentWriter}, sem
+ * carregar o arquivo inteiro em memória.
+ */
+public interface RecordSource extends Iterator<FormRecord>, Closeable {
+
+    /** Registros como stream; fechar o stream fecha o arquivo. */
+    default Stream<FormRecord> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * Abre um arquivo {@code .dbf} ou {@code .csv} (separado por ';', como nas
+     * exportações do SINAN) de acordo com a extensão.
+     */
+    static RecordSource open(Path file, ColumnMapping mapping, Charset charset) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".dbf"))
+            return new DbfRecordReader(file, mapping, charset);
+        if (name.endsWith(".csv"))
+            return new CsvRecordReader(file, mapping, charset, ';');
+        throw new IllegalArgumentException("Formato não suportado: " + file);
+    }
+}
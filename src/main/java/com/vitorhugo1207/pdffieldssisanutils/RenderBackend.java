@@ -0,0 +1,79 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.DocumentException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ServiceLoader;
+
+/**
+ * Backend que desenha as primitivas dos campos (quadrado do número, título,
+ * legendas, quadrado de resposta, opções do grid e a borda de cada campo da
+ * linha) em PDF. Medidas, quebra de texto, paginação e divisão de campos
+ * ficam em {@link FieldLayout}, compartilhado por todos os backends.
+ * <p>
+ * Implementações são descobertas com {@link ServiceLoader} (arquivo
+ * {@code META-INF/services/com.vitorhugo1207.pdffieldssisanutils.RenderBackend}).
+ * Este módulo traz {@link ITextBackend} ({@code "itext5"}) e
+ * {@link RawPdfBackend} ({@code "raw"}); um backend iText 8 pode ser
+ * adicionado em outro módulo implementando só {@link Canvas}.
+ */
+public interface RenderBackend {
+
+    /**
+     * Superfície de desenho de um documento. Coordenadas em pontos, com a
+     * origem no canto inferior esquerdo da página; textos na linha de base.
+     * Cada documento tem a sua, usada por uma thread só.
+     */
+    interface Canvas {
+
+        /** Largura de {@code text} na fonte do conteúdo (ou na do título, com {@code bold}). */
+        float textWidth(boolean bold, float size, String text);
+
+        /** Quadrado branco do número do campo, com o canto superior esquerdo em (x, top). */
+        void numberBox(float x, float top, String number);
+
+        /** Título do campo, em negrito. */
+        void title(float x, float baseline, String title);
+
+        /** Texto normal: legendas, rótulos das opções e respostas. */
+        void text(float x, float baseline, float size, String text);
+
+        /** Quadrado branco de resposta, com o canto superior esquerdo em (x, top). */
+        void answerBox(float x, float top, String answer);
+
+        /** Quadradinho de uma opção do grid, centralizado em (x, y), com o código marcado. */
+        void checkbox(float x, float y, String code);
+
+        /** Borda em U (laterais e base arredondada) do campo em [x0, x1] x [y0, y1]. */
+        void border(float x0, float y0, float x1, float y1);
+
+        /** Linha reta (laterais de um trecho de campo dividido, linha de "Outros"). */
+        void line(float x0, float y0, float x1, float y1);
+
+        /** Fecha a página atual e começa outra. */
+        void newPage() throws DocumentException, IOException;
+
+        /** Conclui o documento e fecha o stream. */
+        void close() throws DocumentException, IOException;
+    }
+
+    /** Nome usado em {@link #forName(String)}. */
+    String getName();
+
+    /** Superfície para um documento de páginas {@code width} x {@code height}, escrito em {@code out}. */
+    Canvas open(OutputStream out, float width, float height) throws DocumentException, IOException;
+
+    /** Renderizador dos registros do plano com {@link FieldLayout}. Pode ser usado por várias threads. */
+    default RecordRenderer<FormRecord> renderer(FormPlan plan) {
+        return FieldLayout.renderer(plan, this);
+    }
+
+    /** Backend registrado com o nome informado. */
+    static RenderBackend forName(String name) {
+        for (RenderBackend backend : ServiceLoader.load(RenderBackend.class))
+            if (backend.getName().equals(name))
+                return backend;
+        throw new IllegalArgumentException("Backend de renderização não encontrado: " + name);
+    }
+}
@@ -0,0 +1,306 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.DocumentException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Cache de PDFs renderizados, endereçado pelo conteúdo: a chave é o SHA-256
+ * do tipo de formulário com todas as respostas. Uma reimpressão de registro
+ * sem alterações devolve os bytes guardados sem passar pelo layout.
+ * <p>
+ * Há dois níveis: memória, com LRU limitado em bytes, e disco (opcional), um
+ * arquivo por chave, com os menos usados apagados quando o diretório passa do
+ * limite. Os PDFs são gerados com {@link FormPlan#deterministicRenderer()}, então
+ * um acerto devolve exatamente os bytes que a renderização produziria.
+ * <p>
+ * A chave não inclui a definição do formulário: ao alterar um
+ * {@code forms/<tipo>.properties}, chame {@link #clear()}.
+ */
+public final class RenderCache {
+
+    private final long maxMemoryBytes;
+    private final Path directory;
+    private final long maxDiskBytes;
+
+    // Em ordem de acesso: o primeiro é o menos usado
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryBytes;
+    private final AtomicLong diskBytes = new AtomicLong();
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /** Cache apenas em memória. */
+    public RenderCache(long maxMemoryBytes) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = null;
+        this.maxDiskBytes = 0;
+    }
+
+    /** Cache em memória e em {@code directory}, que é criado se não existir. */
+    public RenderCache(long maxMemoryBytes, Path directory, long maxDiskBytes) throws IOException {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            diskBytes.set(files.filter(RenderCache::isEntry).mapToLong(RenderCache::sizeOf).sum());
+        }
+    }
+
+    /**
+     * Chave do cache: SHA-256 (hexadecimal) do tipo e das respostas em ordem de
+     * chave. Respostas vazias são ignoradas, como na renderização.
+     */
+    public static String key(String formType, Map<String, String> answers) {
+        return key(formType, answers, Collections.emptyMap());
+    }
+
+    /** Como {@link #key(String, Map)}, incluindo as respostas codificadas do registro. */
+    public static String key(String formType, FormRecord record) {
+        return key(formType, record.getAnswers(), record.getCodedAnswers());
+    }
+
+    private static String key(String formType, Map<String, String> answers, Map<String, byte[]> coded) {
+        MessageDigest sha;
+        try {
+            sha = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(sha, formType);
+        for (Map.Entry<String, String> e : new TreeMap<>(answers).entrySet()) {
+            if (e.getValue() == null || e.getValue().isEmpty())
+                continue;
+            update(sha, e.getKey());
+            update(sha, e.getValue());
+        }
+        if (!coded.isEmpty()) {
+            sha.update((byte) 0xff); // separa as respostas codificadas das em texto
+            for (Map.Entry<String, byte[]> e : new TreeMap<>(coded).entrySet()) {
+                update(sha, e.getKey());
+                update(sha, e.getValue());
+            }
+        }
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : sha.digest())
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        return hex.toString();
+    }
+
+    // Tamanho antes do texto, para que ("a=", "b") e ("a", "=b") não colidam
+    private static void update(MessageDigest sha, String s) {
+        update(sha, s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void update(MessageDigest sha, byte[] bytes) {
+        sha.update((byte) (bytes.length >>> 24));
+        sha.update((byte) (bytes.length >>> 16));
+        sha.update((byte) (bytes.length >>> 8));
+        sha.update((byte) bytes.length);
+        sha.update(bytes);
+    }
+
+    /**
+     * PDF do registro no formulário {@code formType}, do cache ou renderizado
+     * (e guardado) se ainda não existir.
+     */
+    public byte[] render(String formType, FormRecord record) throws DocumentException, IOException {
+        String key = key(formType, record);
+        byte[] pdf = get(key);
+        if (pdf != null)
+            return pdf;
+        misses.incrementAndGet();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FormPlans.get(formType).deterministicRenderer().render(record, out);
+        pdf = out.toByteArray();
+        put(key, pdf);
+        return pdf;
+    }
+
+    /** Bytes guardados para a chave, ou {@code null}. O array não deve ser alterado. */
+    public byte[] get(String key) throws IOException {
+        byte[] pdf;
+        synchronized (memory) {
+            pdf = memory.get(key);
+        }
+        if (pdf != null) {
+            memoryHits.incrementAndGet();
+            return pdf;
+        }
+        if (directory == null)
+            return null;
+        Path file = directory.resolve(key + ".pdf");
+        try {
+            pdf = Files.readAllBytes(file);
+            // A data de modificação marca o último uso, para a remoção por LRU
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        diskHits.incrementAndGet();
+        putInMemory(key, pdf);
+        return pdf;
+    }
+
+    /**
+     * Escreve os bytes guardados para a chave no canal. Acertos em disco usam
+     * {@link FileChannel#transferTo}, sem carregar o arquivo na heap (sendfile
+     * quando o destino é socket ou arquivo) e sem promovê-lo para a memória.
+     * Devolve {@code false} se a chave não existir.
+     */
+    public boolean transferTo(String key, WritableByteChannel target) throws IOException {
+        byte[] pdf;
+        synchronized (memory) {
+            pdf = memory.get(key);
+        }
+        if (pdf != null) {
+            memoryHits.incrementAndGet();
+            ByteBuffer content = ByteBuffer.wrap(pdf);
+            while (content.hasRemaining())
+                target.write(content);
+            return true;
+        }
+        if (directory == null)
+            return false;
+        Path file = directory.resolve(key + ".pdf");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; )
+                position += channel.transferTo(position, size - position, target);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        diskHits.incrementAndGet();
+        return true;
+    }
+
+    public void put(String key, byte[] pdf) throws IOException {
+        putInMemory(key, pdf);
+        if (directory == null)
+            return;
+        Path file = directory.resolve(key + ".pdf");
+        if (Files.exists(file))
+            return;
+        AtomicFiles.write(file, pdf);
+        if (diskBytes.addAndGet(pdf.length) > maxDiskBytes)
+            evictDisk();
+    }
+
+    private void putInMemory(String key, byte[] pdf) {
+        if (pdf.length > maxMemoryBytes)
+            return;
+        synchronized (memory) {
+            byte[] old = memory.put(key, pdf);
+            memoryBytes += pdf.length - (old == null ? 0 : old.length);
+            Iterator<byte[]> it = memory.values().iterator();
+            while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+                memoryBytes -= it.next().length;
+                it.remove();
+            }
+        }
+    }
+
+    /** Apaga os arquivos usados há mais tempo até o diretório voltar a 90% do limite. */
+    private synchronized void evictDisk() throws IOException {
+        if (diskBytes.get() <= maxDiskBytes)
+            return;
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> list = Files.list(directory)) {
+            list.filter(RenderCache::isEntry).forEach(files::add);
+        }
+        Map<Path, FileTime> used = new LinkedHashMap<>();
+        for (Path f : files) {
+            try {
+                used.put(f, Files.getLastModifiedTime(f));
+            } catch (NoSuchFileException e) {
+                // Removido por outro processo
+            }
+        }
+        long target = maxDiskBytes / 10 * 9;
+        Iterator<Path> oldest = used.keySet().stream().sorted(Comparator.comparing(used::get)).iterator();
+        while (diskBytes.get() > target && oldest.hasNext()) {
+            Path f = oldest.next();
+            long size = sizeOf(f);
+            if (Files.deleteIfExists(f))
+                diskBytes.addAndGet(-size);
+        }
+    }
+
+    /** Esvazia os dois níveis. */
+    public void clear() throws IOException {
+        synchronized (memory) {
+            memory.clear();
+            memoryBytes = 0;
+        }
+        if (directory == null)
+            return;
+        try (Stream<Path> list = Files.list(directory)) {
+            for (Path f : (Iterable<Path>) list.filter(RenderCache::isEntry)::iterator)
+                Files.deleteIfExists(f);
+        }
+        diskBytes.set(0);
+    }
+
+    private static boolean isEntry(Path p) {
+        return p.getFileName().toString().endsWith(".pdf");
+    }
+
+    private static long sizeOf(Path p) {
+        try {
+            return Files.size(p);
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getMemoryBytes() {
+        synchronized (memory) {
+            return memoryBytes;
+        }
+    }
+
+    public long getDiskBytes() {
+        return diskBytes.get();
+    }
+}
@@ -0,0 +1,279 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Processo de longa duração que gera PDFs sob demanda com a JVM já aquecida,
+ * sem pagar a inicialização da JVM, o carregamento do iText e o JIT a cada PDF.
+ * <p>
+ * Modo spool ({@code --spool <dir>}): cada arquivo {@code *.job} que aparece no
+ * diretório é um trabalho no formato {@code .properties}:
+ *
+ * <pre>
+ * form = exemplo
+ * output = 2024-000123.pdf
+ * id = 2024-000123
+ * 29 = 1
+ * 33.0 = 1
+ * </pre>
+ *
+ * As demais chaves são respostas ({@link AnswerKeys}). Sem {@code output}, o
+ * PDF recebe o nome do trabalho; {@code output} é relativo ao diretório de
+ * saída, e caminhos que saem dele fazem o trabalho falhar. Produtores devem criar o {@code .job} de forma
+ * atômica (gravar com outro nome e renomear). Trabalhos concluídos são apagados;
+ * os que falham são renomeados para {@code .failed}.
+ * <p>
+ * Modo stdin (sem {@code --spool}): cada linha é
+ * {@code <formulário> <saída.pdf> <respostas urlencoded>} e a resposta sai em
+ * stdout como {@code OK <saída> <ms>} ou {@code ERRO <saída> <mensagem>}.
+ * <p>
+ * Os PDFs são gravados com {@link AtomicFiles}. Com {@code --warmup N}, N
+ * registros de cada formulário de {@code --forms} são renderizados antes de
+ * aceitar trabalhos.
+ */
+public final class RenderDaemon {
+
+    private static final String JOB_SUFFIX = ".job";
+
+    private final Path outputDir;
+    private final ExecutorService executor;
+    // Trabalhos do spool já enviados para a fila, para não processar duas vezes
+    private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+
+    public RenderDaemon(Path outputDir, int threads) {
+        this.outputDir = outputDir;
+        this.executor = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Renderiza {@code records} registros vazios de cada formulário, para
+     * carregar as classes e compilar o caminho de renderização.
+     */
+    public void warmUp(String[] formTypes, int records) throws Exception {
+        for (String formType : formTypes) {
+            FormPlan plan = FormPlans.get(formType.trim());
+            for (int i = 0; i < records; i++)
+                plan.renderer().render(FormRecord.EMPTY, OutputStream.nullOutputStream());
+        }
+    }
+
+    /**
+     * Gera um trabalho e grava o PDF de forma atômica. Retorna o arquivo gravado.
+     * {@code output} é relativo ao diretório de saída e não pode sair dele.
+     */
+    public Path render(String formType, String output, FormRecord record) throws Exception {
+        Path target = target(output);
+        RecordRenderer<FormRecord> renderer = FormPlans.get(formType).renderer();
+        AtomicFiles.write(target, out -> renderer.render(record, out));
+        return target;
+    }
+
+    /** Arquivo de saída dentro de {@code outputDir}; caminhos absolutos ou com {@code ..} para fora são recusados. */
+    private Path target(String output) {
+        Path relative = Path.of(output);
+        Path dir = outputDir.toAbsolutePath().normalize();
+        Path target = dir.resolve(relative).normalize();
+        if (relative.isAbsolute() || !target.startsWith(dir) || target.equals(dir))
+            throw new IllegalArgumentException("Saída fora do diretório de saída: " + output);
+        return target;
+    }
+
+    // --- SPOOL ---
+
+    /** Processa os trabalhos já existentes e depois observa o diretório até ser interrompido. */
+    public void watch(Path spool) throws IOException, InterruptedException {
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            // Registra antes de listar, para não perder trabalhos criados entre os dois
+            // Arquivos renomeados para dentro do diretório também geram ENTRY_CREATE
+            spool.register(watcher, StandardWatchEventKinds.ENTRY_CREATE);
+            scan(spool);
+            while (true) {
+                WatchKey key = watcher.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                        scan(spool);
+                    else
+                        submit(spool.resolve((Path) event.context()));
+                }
+                if (!key.reset())
+                    throw new IOException("Diretório de spool não está mais acessível: " + spool);
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Encerrado
+        }
+    }
+
+    private void scan(Path spool) throws IOException {
+        try (Stream<Path> files = Files.list(spool)) {
+            files.sorted().forEach(this::submit);
+        }
+    }
+
+    private void submit(Path job) {
+        if (!job.getFileName().toString().endsWith(JOB_SUFFIX) || !pending.add(job))
+            return;
+        executor.execute(() -> {
+            try {
+                runJob(job);
+            } finally {
+                pending.remove(job);
+            }
+        });
+    }
+
+    private void runJob(Path job) {
+        long start = System.nanoTime();
+        try {
+            if (!Files.exists(job))
+                return; // já processado
+            Properties props = new Properties();
+            try (Reader in = Files.newBufferedReader(job, StandardCharsets.UTF_8)) {
+                props.load(in);
+            }
+            String formType = props.getProperty("form");
+            if (formType == null)
+                throw new IllegalArgumentException("Trabalho sem 'form'");
+            String name = job.getFileName().toString();
+            String output = props.getProperty("output",
+                    name.substring(0, name.length() - JOB_SUFFIX.length()) + ".pdf");
+            Map<String, String> answers = new HashMap<>();
+            for (String key : props.stringPropertyNames())
+                if (!key.equals("form") && !key.equals("output") && !key.equals("id"))
+                    answers.put(key, props.getProperty(key));
+            Path target = render(formType.trim(), output.trim(), new FormRecord(props.getProperty("id", ""), answers));
+            Files.deleteIfExists(job);
+            System.out.printf("OK %s %.1fms%n", target, (System.nanoTime() - start) / 1e6);
+        } catch (Exception e) {
+            System.err.println("ERRO " + job + ": " + e);
+            try {
+                Files.move(job, job.resolveSibling(job.getFileName() + ".failed"),
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException moveError) {
+                System.err.println("ERRO ao marcar " + job + ": " + moveError);
+            }
+        }
+    }
+
+    // --- STDIN ---
+
+    /** Lê trabalhos linha a linha até o fim da entrada; as respostas saem em {@code out}. */
+    public void serve(InputStream in, PrintStream out) throws IOException, InterruptedException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank())
+                continue;
+            String[] parts = line.trim().split("\\s+", 3);
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                String output = parts.length > 1 ? parts[1] : "?";
+                try {
+                    if (parts.length < 2)
+                        throw new IllegalArgumentException("Linha inválida, esperado: <formulário> <saída.pdf> [respostas]");
+                    Map<String, String> answers = parts.length > 2 ? parseAnswers(parts[2]) : Map.of();
+                    Path target = render(parts[0], output, new FormRecord("", answers));
+                    reply(out, String.format("OK %s %.1f", target, (System.nanoTime() - start) / 1e6));
+                } catch (Exception e) {
+                    reply(out, "ERRO " + output + " " + String.valueOf(e.getMessage()).replace('\n', ' '));
+                }
+            });
+        }
+        shutdown();
+    }
+
+    private static void reply(PrintStream out, String line) {
+        synchronized (out) {
+            out.println(line);
+            out.flush();
+        }
+    }
+
+    private static Map<String, String> parseAnswers(String encoded) {
+        Map<String, String> answers = new HashMap<>();
+        for (String pair : encoded.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0)
+                answers.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return answers;
+    }
+
+    /** Espera os trabalhos em andamento e libera as threads. */
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Uso: {@code RenderDaemon [--spool <dir>] [--out <dir>] [--threads N]
+     * [--warmup N] [--forms tipo1,tipo2]}.
+     */
+    public static void main(String[] args) throws Exception {
+        Path spool = null;
+        Path out = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int warmup = 0;
+        String forms = "exemplo";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--spool":
+                    spool = Path.of(args[++i]);
+                    break;
+                case "--out":
+                    out = Path.of(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(args[++i]);
+                    break;
+                case "--forms":
+                    forms = args[++i];
+                    break;
+                default:
+                    throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
+            }
+        }
+        if (out == null)
+            out = spool != null ? spool : Path.of(".");
+
+        RenderDaemon daemon = new RenderDaemon(out, threads);
+        if (warmup > 0) {
+            long start = System.nanoTime();
+            daemon.warmUp(forms.split(","), warmup);
+            System.err.printf("Aquecimento: %d registros em %.0fms%n", warmup, (System.nanoTime() - start) / 1e6);
+        }
+        if (spool != null)
+            daemon.watch(spool);
+        else
+            daemon.serve(System.in, System.out);
+    }
+}
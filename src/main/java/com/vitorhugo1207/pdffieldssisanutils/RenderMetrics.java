@@ -0,0 +1,315 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instrumentação da renderização: tempo e alocação da montagem de cada campo
+ * ({@link PdfFieldUtils}), tempo do layout de cada linha e dos eventos que
+ * desenham grids, e tempo e bytes escritos de cada documento.
+ * <p>
+ * As medidas são publicadas como eventos JFR (categoria "SINAN") sempre que
+ * uma gravação os habilita, e acumuladas para {@link #snapshot()} quando a
+ * coleta está ativa ({@link #setEnabled(boolean)} ou
+ * {@code -Dsinan.metrics=true}). Com as duas desligadas o custo é uma leitura
+ * de flag por campo.
+ */
+public final class RenderMetrics {
+
+    /** Etapa medida. */
+    public enum Stage {
+        /** Montagem das células de um campo ({@code create*}). */
+        BUILD,
+        /** Layout de uma linha ou desenho de um grid pelo evento de célula. */
+        LAYOUT,
+        /** Documento completo, do início ao fechamento. */
+        DOCUMENT
+    }
+
+    @Name("com.vitorhugo1207.pdffieldssisanutils.FieldBuild")
+    @Label("Montagem de campo")
+    @Category({ "SINAN", "PDF" })
+    static final class FieldBuildEvent extends Event {
+        @Label("Tipo")
+        String fieldType;
+        @Label("Campo")
+        String fieldNumber;
+        @Label("Bytes alocados")
+        @DataAmount(DataAmount.BYTES)
+        long allocatedBytes;
+    }
+
+    @Name("com.vitorhugo1207.pdffieldssisanutils.Layout")
+    @Label("Layout de campo")
+    @Description("Adição de uma linha ao documento ou desenho de um grid de opções")
+    @Category({ "SINAN", "PDF" })
+    static final class LayoutEvent extends Event {
+        @Label("Tipo")
+        String fieldType;
+        @Label("Campos")
+        String fieldNumber;
+        @Label("Bytes alocados")
+        @DataAmount(DataAmount.BYTES)
+        long allocatedBytes;
+    }
+
+    @Name("com.vitorhugo1207.pdffieldssisanutils.DocumentRender")
+    @Label("Renderização de documento")
+    @Category({ "SINAN", "PDF" })
+    static final class DocumentEvent extends Event {
+        @Label("Formulário")
+        String formType;
+        @Label("Bytes escritos")
+        @DataAmount(DataAmount.BYTES)
+        long bytesWritten;
+        @Label("Bytes alocados")
+        @DataAmount(DataAmount.BYTES)
+        long allocatedBytes;
+    }
+
+    private static final EventType BUILD_EVENT = EventType.getEventType(FieldBuildEvent.class);
+    private static final EventType LAYOUT_EVENT = EventType.getEventType(LayoutEvent.class);
+    private static final EventType DOCUMENT_EVENT = EventType.getEventType(DocumentEvent.class);
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static volatile boolean enabled = Boolean.getBoolean("sinan.metrics");
+
+    private static final Map<String, Stat> STATS = new ConcurrentHashMap<>();
+
+    private RenderMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Liga ou desliga o acúmulo para {@link #snapshot()}. Os eventos JFR independem disto. */
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    /** Medição em andamento; {@code null} quando nada está sendo coletado. */
+    static final class Probe {
+        final Event event;
+        final long startNanos = System.nanoTime();
+        final long startAllocated = THREADS.getCurrentThreadAllocatedBytes();
+
+        Probe(Event event) {
+            this.event = event;
+            event.begin();
+        }
+    }
+
+    static Probe begin(Stage stage) {
+        switch (stage) {
+            case BUILD:
+                return enabled || BUILD_EVENT.isEnabled() ? new Probe(new FieldBuildEvent()) : null;
+            case LAYOUT:
+                return enabled || LAYOUT_EVENT.isEnabled() ? new Probe(new LayoutEvent()) : null;
+            default:
+                return enabled || DOCUMENT_EVENT.isEnabled() ? new Probe(new DocumentEvent()) : null;
+        }
+    }
+
+    /** Encerra uma medição de montagem ou layout. Aceita {@code null}. */
+    static void end(Probe probe, Stage stage, String type, String name) {
+        end(probe, stage, type, name, 0);
+    }
+
+    static void end(Probe probe, Stage stage, String type, String name, long bytesWritten) {
+        if (probe == null)
+            return;
+        long nanos = System.nanoTime() - probe.startNanos;
+        // Virtual threads não informam alocação (-1)
+        long allocated = probe.startAllocated < 0 ? 0
+                : THREADS.getCurrentThreadAllocatedBytes() - probe.startAllocated;
+        Event event = probe.event;
+        event.end();
+        if (event.shouldCommit()) {
+            if (event instanceof FieldBuildEvent) {
+                FieldBuildEvent e = (FieldBuildEvent) event;
+                e.fieldType = type;
+                e.fieldNumber = name;
+                e.allocatedBytes = allocated;
+            } else if (event instanceof LayoutEvent) {
+                LayoutEvent e = (LayoutEvent) event;
+                e.fieldType = type;
+                e.fieldNumber = name;
+                e.allocatedBytes = allocated;
+            } else {
+                DocumentEvent e = (DocumentEvent) event;
+                e.formType = name;
+                e.bytesWritten = bytesWritten;
+                e.allocatedBytes = allocated;
+            }
+            event.commit();
+        }
+        if (enabled)
+            STATS.computeIfAbsent(stage + "|" + type + "|" + name, k -> new Stat(stage, type, name))
+                    .add(nanos, allocated, bytesWritten);
+    }
+
+    /**
+     * Renderizador que mede cada documento gerado por {@code renderer}
+     * (tempo, alocação e bytes escritos), identificado por {@code name}.
+     */
+    public static <R> RecordRenderer<R> instrument(String name, RecordRenderer<R> renderer) {
+        return (record, out) -> {
+            Probe probe = begin(Stage.DOCUMENT);
+            if (probe == null) {
+                renderer.render(record, out);
+                return;
+            }
+            CountingOutputStream counting = new CountingOutputStream(out);
+            renderer.render(record, counting);
+            end(probe, Stage.DOCUMENT, "documento", name, counting.getCount());
+        };
+    }
+
+    /** Medidas acumuladas desde o início ou desde o último {@link #reset()}. */
+    public static Snapshot snapshot() {
+        List<Entry> entries = new ArrayList<>(STATS.size());
+        for (Stat s : STATS.values())
+            entries.add(s.toEntry());
+        entries.sort(Comparator.comparingLong(Entry::getTotalNanos).reversed());
+        return new Snapshot(entries);
+    }
+
+    public static void reset() {
+        STATS.clear();
+    }
+
+    private static final class Stat {
+        final Stage stage;
+        final String type;
+        final String name;
+        final LongAdder count = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder allocated = new LongAdder();
+        final LongAdder written = new LongAdder();
+
+        Stat(Stage stage, String type, String name) {
+            this.stage = stage;
+            this.type = type;
+            this.name = name;
+        }
+
+        void add(long n, long a, long w) {
+            count.increment();
+            nanos.add(n);
+            maxNanos.accumulate(n);
+            allocated.add(a);
+            written.add(w);
+        }
+
+        Entry toEntry() {
+            return new Entry(stage, type, name, count.sum(), nanos.sum(), maxNanos.get(), allocated.sum(),
+                    written.sum());
+        }
+    }
+
+    /** Medidas acumuladas de uma etapa de um campo (ou documento). */
+    public static final class Entry {
+        private final Stage stage;
+        private final String type;
+        private final String name;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long allocatedBytes;
+        private final long bytesWritten;
+
+        Entry(Stage stage, String type, String name, long count, long totalNanos, long maxNanos,
+                long allocatedBytes, long bytesWritten) {
+            this.stage = stage;
+            this.type = type;
+            this.name = name;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.bytesWritten = bytesWritten;
+        }
+
+        public Stage getStage() {
+            return stage;
+        }
+
+        /** Tipo do campo ("descritivo", "legenda", "opcoes"...), "linha" ou "documento". */
+        public String getType() {
+            return type;
+        }
+
+        /** Número do campo, números da linha ou tipo de formulário. */
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /** Bytes escritos no stream de saída (só em {@link Stage#DOCUMENT}). */
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        public double getMeanMicros() {
+            return count == 0 ? 0 : totalNanos / 1000d / count;
+        }
+    }
+
+    /** Cópia das medidas em um instante, da etapa mais demorada para a menos. */
+    public static final class Snapshot {
+        private final List<Entry> entries;
+
+        Snapshot(List<Entry> entries) {
+            this.entries = Collections.unmodifiableList(entries);
+        }
+
+        public List<Entry> getEntries() {
+            return entries;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(String.format("%-9s %-10s %-12s %8s %10s %10s %12s %10s%n",
+                    "etapa", "tipo", "campo", "qtd", "média µs", "máx µs", "alocado/qtd", "bytes/qtd"));
+            for (Entry e : entries)
+                sb.append(String.format("%-9s %-10s %-12s %8d %10.1f %10.1f %12d %10d%n",
+                        e.stage, e.type, e.name, e.count, e.getMeanMicros(), e.maxNanos / 1000d,
+                        e.count == 0 ? 0 : e.allocatedBytes / e.count, e.count == 0 ? 0 : e.bytesWritten / e.count));
+            return sb.toString();
+        }
+    }
+}
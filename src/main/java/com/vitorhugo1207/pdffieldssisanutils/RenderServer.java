@@ -0,0 +1,194 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serviço HTTP embutido (JDK {@link HttpServer}) que gera PDFs sob demanda.
+ * <p>
+ * {@code POST /render/<tipo>} recebe as respostas como
+ * {@code application/x-www-form-urlencoded} com as chaves de
+ * {@link AnswerKeys} (ex.: {@code 29=1&33.0=1&33.outros=Tosse}) e devolve o PDF
+ * do formulário {@link FormPlans#get(String) tipo}, escrito direto na resposta
+ * (chunked), sem montar o PDF inteiro em memória. Com {@code ?modo=esqueleto}
+ * o registro é preenchido sobre o esqueleto pré-renderizado, a não ser que
+ * algum texto descritivo não caiba nele (ver {@link FormPlan#skeletonRenderer()}).
+ * <p>
+ * Cada requisição roda em uma virtual thread; no máximo
+ * {@code maxConcurrent} renderizações acontecem ao mesmo tempo e até
+ * {@code maxQueued} esperam a vez. Acima disso, ou se a espera passar de
+ * {@code queueTimeoutMillis}, a resposta é 503. {@code GET /metrics} mostra
+ * os contadores da fila.
+ */
+public final class RenderServer {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore renderSlots;
+    private final int maxQueued;
+    private final long queueTimeoutMillis;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong renderNanos = new AtomicLong();
+
+    public RenderServer(int port, int maxConcurrent, int maxQueued, long queueTimeoutMillis) throws IOException {
+        this.renderSlots = new Semaphore(maxConcurrent);
+        this.maxQueued = maxQueued;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/render/", this::handleRender);
+        server.createContext("/metrics", this::handleMetrics);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleRender(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendText(exchange, 405, "Use POST");
+                return;
+            }
+            String formType = exchange.getRequestURI().getPath().substring("/render/".length());
+            FormPlan plan;
+            try {
+                plan = FormPlans.get(formType);
+            } catch (IllegalArgumentException e) {
+                sendText(exchange, 404, e.getMessage());
+                return;
+            }
+            FormRecord record = new FormRecord("", parseForm(exchange.getRequestBody()));
+            boolean skeleton = "modo=esqueleto".equals(exchange.getRequestURI().getQuery());
+
+            if (!acquire()) {
+                rejected.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendText(exchange, 503, "Servidor ocupado");
+                return;
+            }
+            active.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                RecordRenderer<FormRecord> renderer;
+                try {
+                    renderer = skeleton ? plan.skeletonRenderer() : plan.renderer();
+                } catch (Exception e) {
+                    // Nada foi enviado ainda: responde com erro em vez de deixar o cliente esperando
+                    failed.incrementAndGet();
+                    e.printStackTrace();
+                    sendText(exchange, 500, "Erro ao preparar o formulário " + formType);
+                    return;
+                }
+                exchange.getResponseHeaders().set("Content-Type", "application/pdf");
+                exchange.sendResponseHeaders(200, 0);
+                // O iText fecha o stream ao terminar o documento, o que encerra a resposta chunked
+                OutputStream out = new BufferedOutputStream(exchange.getResponseBody(), 16 * 1024);
+                renderer.render(record, out);
+                completed.incrementAndGet();
+            } catch (Exception e) {
+                // O status já foi enviado: a conexão é encerrada com a resposta incompleta
+                failed.incrementAndGet();
+                e.printStackTrace();
+            } finally {
+                renderNanos.addAndGet(System.nanoTime() - start);
+                active.decrementAndGet();
+                renderSlots.release();
+            }
+        }
+    }
+
+    /** Espera uma vaga de renderização, respeitando o limite da fila. */
+    private boolean acquire() {
+        if (renderSlots.tryAcquire())
+            return true;
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return false;
+        }
+        try {
+            return renderSlots.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            long done = completed.get();
+            String body = "active " + active.get() + "\n"
+                    + "queued " + queued.get() + "\n"
+                    + "completed " + done + "\n"
+                    + "rejected " + rejected.get() + "\n"
+                    + "failed " + failed.get() + "\n"
+                    + "render_seconds_total " + renderNanos.get() / 1e9 + "\n";
+            sendText(exchange, 200, body);
+        }
+    }
+
+    private static Map<String, String> parseForm(InputStream in) throws IOException {
+        String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        Map<String, String> answers = new HashMap<>();
+        for (String pair : body.split("&")) {
+            if (pair.isEmpty())
+                continue;
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            answers.put(key, value);
+        }
+        return answers;
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    /**
+     * Uso: {@code RenderServer [porta] [renderizações simultâneas] [fila]}.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int queue = args.length > 2 ? Integer.parseInt(args[2]) : concurrency * 4;
+        RenderServer server = new RenderServer(port, concurrency, queue, 5_000);
+        server.start();
+        System.out.println("Servidor de PDF ouvindo na porta " + server.getPort());
+    }
+}
@@ -0,0 +1,47 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+/**
+ * Páginas e alturas de cada linha de um {@link FormPlan} em um documento já
+ * renderizado, registradas por
+ * {@link FormPlan#composeRows}.
+ * <p>
+ * Um trecho que começa no topo de uma página, sem nada da linha anterior na
+ * mesma página, não depende do que veio antes: {@link IncrementalRenderer}
+ * pode gerá-lo de novo sozinho.
+ */
+final class RowPages {
+
+    // Páginas começando em 1. O espaço depois da linha não entra em last: se
+    // ele quebra a página, a seguinte começa vazia; se vai parar no topo da
+    // seguinte, a próxima linha não começa no topo (startsPage)
+    final int[] first;
+    final int[] last;
+    final boolean[] startsPage;
+    // Altura da tabela, ou cabeçalho e linhas do grid de um campo divisível
+    final float[][] heights;
+
+    RowPages(int rows) {
+        first = new int[rows];
+        last = new int[rows];
+        startsPage = new boolean[rows];
+        heights = new float[rows][];
+    }
+
+    void record(int row, int firstPage, int lastPage, boolean startedPage, float[] rowHeights) {
+        first[row] = firstPage;
+        last[row] = lastPage;
+        startsPage[row] = startedPage;
+        heights[row] = rowHeights;
+    }
+
+    /** Se a linha começa um trecho independente das linhas anteriores. */
+    boolean startsSegment(int row) {
+        return row == 0 || startsPage[row] && first[row] > last[row - 1];
+    }
+
+    /** Copia as linhas {@code [from, to)} de {@code other}, somando {@code offset} às páginas. */
+    void copy(RowPages other, int from, int to, int offset) {
+        for (int r = from; r < to; r++)
+            record(r, other.first[r] + offset, other.last[r] + offset, other.startsPage[r], other.heights[r]);
+    }
+}
@@ -0,0 +1,387 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Divide uma exportação do SINAN em fatias de registros consecutivos e as
+ * renderiza em vários processos {@link ShardWorker}, cada um com sua própria
+ * JVM (heap e GC separados). Cada fatia vira {@code shard-NNNNN.pdf} no
+ * diretório de saída; {@link #getOutputs()} lista os arquivos na ordem da
+ * entrada, prontos para {@link PdfTreeMerger}.
+ * <p>
+ * Os trabalhadores conversam com o coordenador por stdin/stdout, uma linha por
+ * mensagem; o mesmo protocolo pode passar por um socket quando os
+ * trabalhadores estiverem em outras máquinas. Se um trabalhador morre, a fatia
+ * em andamento volta para a fila e outro processo é iniciado no lugar. Uma
+ * fatia que falha {@code maxAttempts} vezes é abandonada e {@link #run()}
+ * termina com {@link IOException} depois que as demais acabarem. Um
+ * trabalhador que fica {@link #setIdleTimeoutMillis(long) tempo demais} sem
+ * mandar nenhuma mensagem é tratado como morto.
+ */
+public final class ShardCoordinator {
+
+    private final Path input;
+    private final Path mappingFile;
+    private final String formType;
+    private final Path outputDirectory;
+
+    private Charset charset = Charset.forName("windows-1252");
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private long shardSize = 1000;
+    private int maxAttempts = 3;
+    private long idleTimeoutMillis = TimeUnit.MINUTES.toMillis(5);
+    private final List<String> jvmOptions = new ArrayList<>();
+
+    private final List<Shard> shards = new ArrayList<>();
+    // Byte em que começa cada fatia de um .csv (ver CsvRecordReader#seek)
+    private final List<Long> offsets = new ArrayList<>();
+
+    public ShardCoordinator(Path input, Path mappingFile, String formType, Path outputDirectory) {
+        this.input = input;
+        this.mappingFile = mappingFile;
+        this.formType = formType;
+        this.outputDirectory = outputDirectory;
+    }
+
+    public ShardCoordinator setCharset(Charset charset) {
+        this.charset = charset;
+        return this;
+    }
+
+    /** Número de processos trabalhadores simultâneos. */
+    public ShardCoordinator setWorkers(int workers) {
+        this.workers = Math.max(1, workers);
+        return this;
+    }
+
+    /** Registros por fatia (posições no arquivo, incluindo apagados no {@code .dbf}). */
+    public ShardCoordinator setShardSize(long shardSize) {
+        this.shardSize = Math.max(1, shardSize);
+        return this;
+    }
+
+    /** Tentativas por fatia antes de desistir dela. */
+    public ShardCoordinator setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        return this;
+    }
+
+    /**
+     * Tempo máximo sem nenhuma mensagem do trabalhador durante uma fatia (o
+     * trabalhador manda progresso a cada 500
+     * registros). Passado esse tempo o processo é encerrado e a fatia volta
+     * para a fila.
+     */
+    public ShardCoordinator setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = Math.max(1, idleTimeoutMillis);
+        return this;
+    }
+
+    /** Opção extra para a JVM dos trabalhadores (ex.: {@code -Xmx512m}). */
+    public ShardCoordinator addJvmOption(String option) {
+        jvmOptions.add(option);
+        return this;
+    }
+
+    public BatchResult run() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Files.createDirectories(outputDirectory);
+        long total = countRecords();
+
+        shards.clear();
+        BlockingQueue<Shard> pending = new LinkedBlockingQueue<>();
+        for (long from = 0; from < total; from += shardSize) {
+            int index = shards.size();
+            Shard shard = new Shard(index, from, Math.min(total, from + shardSize),
+                    index < offsets.size() ? offsets.get(index) : -1);
+            shards.add(shard);
+            pending.add(shard);
+        }
+
+        CountDownLatch remaining = new CountDownLatch(shards.size());
+        ConcurrentLinkedQueue<Shard> failed = new ConcurrentLinkedQueue<>();
+        List<Thread> slots = new ArrayList<>();
+        for (int i = 0; i < Math.min(workers, shards.size()); i++)
+            slots.add(Thread.ofPlatform().name("shard-worker-" + i).start(() -> serve(pending, remaining, failed)));
+        remaining.await();
+        for (Thread slot : slots)
+            slot.join();
+
+        if (!failed.isEmpty()) {
+            StringBuilder message = new StringBuilder("Fatias com falha:");
+            for (Shard shard : failed)
+                message.append(' ').append(shard.index).append(" (").append(shard.error).append(')');
+            throw new IOException(message.toString());
+        }
+        long records = 0;
+        long bytes = 0;
+        for (Shard shard : shards) {
+            records += shard.records;
+            bytes += shard.bytes;
+        }
+        return new BatchResult(records, bytes, System.nanoTime() - start);
+    }
+
+    /** PDFs das fatias concluídas com registros, na ordem da entrada. */
+    public List<Path> getOutputs() {
+        List<Path> outputs = new ArrayList<>();
+        for (Shard shard : shards)
+            if (shard.done && shard.records > 0)
+                outputs.add(ShardWorker.shardFile(outputDirectory, shard.index));
+        return outputs;
+    }
+
+    /** Registros já renderizados, incluindo o progresso das fatias em andamento. */
+    public long getProgress() {
+        long progress = 0;
+        for (Shard shard : shards)
+            progress += shard.progress;
+        return progress;
+    }
+
+    /** Conta os registros; em um .csv, guarda também o byte de início de cada fatia. */
+    private long countRecords() throws IOException {
+        offsets.clear();
+        ColumnMapping mapping;
+        try (InputStream in = Files.newInputStream(mappingFile)) {
+            mapping = ColumnMapping.load(in);
+        }
+        try (RecordSource source = RecordSource.open(input, mapping, charset)) {
+            if (source instanceof DbfRecordReader)
+                return ((DbfRecordReader) source).getRecordCount();
+            CsvRecordReader csv = source instanceof CsvRecordReader ? (CsvRecordReader) source : null;
+            long count = 0;
+            for (; source.hasNext(); source.next()) {
+                if (csv != null && count % shardSize == 0)
+                    offsets.add(csv.getOffset());
+                count++;
+            }
+            return count;
+        }
+    }
+
+    /** Uma vaga de trabalhador: pega fatias da fila até todas terminarem. */
+    private void serve(BlockingQueue<Shard> pending, CountDownLatch remaining, ConcurrentLinkedQueue<Shard> failed) {
+        Process process = null;
+        BlockingQueue<String> from = null;
+        PrintStream to = null;
+        try {
+            while (remaining.getCount() > 0) {
+                Shard shard = pending.poll(200, TimeUnit.MILLISECONDS);
+                if (shard == null)
+                    continue;
+                String error;
+                try {
+                    if (process == null) {
+                        process = launch();
+                        from = lines(process);
+                        to = new PrintStream(process.getOutputStream(), true, StandardCharsets.UTF_8);
+                    }
+                    to.println("SHARD " + shard.index + " " + shard.start + " " + shard.end
+                            + (shard.offset >= 0 ? " " + shard.offset : ""));
+                    error = await(shard, from, idleTimeoutMillis);
+                } catch (IOException | RuntimeException e) {
+                    error = "!" + e;
+                }
+                if (error == null) {
+                    shard.done = true;
+                    remaining.countDown();
+                    continue;
+                }
+                if (error.startsWith("!")) {
+                    // O processo morreu: a fatia volta para a fila e outro processo assume
+                    if (process != null)
+                        process.destroyForcibly();
+                    process = null;
+                    error = error.substring(1);
+                }
+                shard.progress = 0;
+                shard.error = error;
+                if (++shard.attempts >= maxAttempts) {
+                    failed.add(shard);
+                    remaining.countDown();
+                } else {
+                    System.err.println("Fatia " + shard.index + " será repetida: " + error);
+                    pending.add(shard);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (process != null)
+                stop(process, to);
+        }
+    }
+
+    /**
+     * Lê as mensagens da fatia até o fim. Devolve {@code null} se concluída, a
+     * mensagem de erro do trabalhador, ou a causa prefixada com '!' se o
+     * processo morreu ou ficou mudo por mais de {@code idleTimeoutMillis}.
+     * Linhas fora do protocolo (ex.: algo impresso no stdout por uma
+     * biblioteca) são ignoradas.
+     */
+    private static String await(Shard shard, BlockingQueue<String> from, long idleTimeoutMillis)
+            throws InterruptedException {
+        while (true) {
+            String line = from.poll(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+            if (line == null)
+                return "!sem resposta do trabalhador há " + idleTimeoutMillis + " ms";
+            if (line == END_OF_OUTPUT)
+                return "!trabalhador encerrado";
+            String[] parts = line.split(" ", 4);
+            if (parts.length < 3 || !parts[1].equals(Integer.toString(shard.index)))
+                continue;
+            try {
+                switch (parts[0]) {
+                    case "PROGRESS":
+                        shard.progress = Long.parseLong(parts[2]);
+                        break;
+                    case "DONE":
+                        if (parts.length < 4)
+                            continue;
+                        shard.records = Long.parseLong(parts[2]);
+                        shard.bytes = Long.parseLong(parts[3]);
+                        shard.progress = shard.records;
+                        return null;
+                    case "ERRO":
+                        return line.substring(line.indexOf(' ', 5) + 1);
+                    default:
+                        break;
+                }
+            } catch (NumberFormatException e) {
+                // Fora do protocolo: ignorada
+            }
+        }
+    }
+
+    /** Marca o fim do stdout do trabalhador na fila de {@link #lines(Process)}. */
+    private static final String END_OF_OUTPUT = new String("");
+
+    /**
+     * Linhas do stdout do processo, lidas por uma thread própria para que
+     * {@link #await} possa desistir de um trabalhador travado. Termina com
+     * {@link #END_OF_OUTPUT}.
+     */
+    private static BlockingQueue<String> lines(Process process) {
+        BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        Thread.ofVirtual().start(() -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null)
+                    lines.add(line);
+            } catch (IOException e) {
+                // Processo encerrado: tratado como fim da saída
+            } finally {
+                lines.add(END_OF_OUTPUT);
+            }
+        });
+        return lines;
+    }
+
+    private Process launch() throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ShardWorker.class.getName());
+        command.add(input.toString());
+        command.add(mappingFile.toString());
+        command.add(formType);
+        command.add(outputDirectory.toString());
+        command.add(charset.name());
+        return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    }
+
+    /** Fecha o stdin (o trabalhador termina sozinho) e espera um pouco antes de forçar. */
+    private static void stop(Process process, PrintStream to) {
+        to.close();
+        try {
+            if (!process.waitFor(10, TimeUnit.SECONDS))
+                process.destroyForcibly();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Uma fatia {@code [start, end)} da entrada, começando no byte {@code offset} de um .csv (ou -1). */
+    private static final class Shard {
+        final int index;
+        final long start;
+        final long end;
+        final long offset;
+        volatile long progress;
+        volatile boolean done;
+        long records;
+        long bytes;
+        int attempts;
+        String error;
+
+        Shard(int index, long start, long end, long offset) {
+            this.index = index;
+            this.start = start;
+            this.end = end;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Uso: {@code ShardCoordinator <entrada.dbf|csv> <mapeamento.properties>
+     * <formulário> <dir-saída> [--workers N] [--shard-size N] [--attempts N]
+     * [--idle-timeout segundos] [--charset X] [--jvm opção] [--merge saída.pdf]}.
+     */
+    public static void main(String[] args) throws Exception {
+        ShardCoordinator coordinator = new ShardCoordinator(Path.of(args[0]), Path.of(args[1]), args[2],
+                Path.of(args[3]));
+        Path merge = null;
+        for (int i = 4; i < args.length; i++) {
+            switch (args[i]) {
+                case "--workers":
+                    coordinator.setWorkers(Integer.parseInt(args[++i]));
+                    break;
+                case "--shard-size":
+                    coordinator.setShardSize(Long.parseLong(args[++i]));
+                    break;
+                case "--attempts":
+                    coordinator.setMaxAttempts(Integer.parseInt(args[++i]));
+                    break;
+                case "--idle-timeout":
+                    coordinator.setIdleTimeoutMillis(TimeUnit.SECONDS.toMillis(Long.parseLong(args[++i])));
+                    break;
+                case "--charset":
+                    coordinator.setCharset(Charset.forName(args[++i]));
+                    break;
+                case "--jvm":
+                    coordinator.addJvmOption(args[++i]);
+                    break;
+                case "--merge":
+                    merge = Path.of(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Opção desconhecida: " + args[i]);
+            }
+        }
+
+        BatchResult result = coordinator.run();
+        System.out.println(result);
+        if (merge != null)
+            System.out.println(new PdfTreeMerger().merge(coordinator.getOutputs(), merge));
+    }
+}
@@ -0,0 +1,134 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Processo trabalhador de {@link ShardCoordinator}. Recebe fatias da entrada
+ * pelo stdin e gera um PDF por fatia (todos os registros em sequência, com
+ * {@link BulkDocumentWriter}), gravado com {@link AtomicFiles}: uma fatia
+ * interrompida no meio nunca deixa um PDF parcial.
+ * <p>
+ * Protocolo, uma linha por mensagem:
+ *
+ * <pre>
+ * entrada: SHARD &lt;n&gt; &lt;início&gt; &lt;fim&gt; [&lt;byte&gt;]
+ * saída:   PROGRESS &lt;n&gt; &lt;registros&gt;
+ *          DONE &lt;n&gt; &lt;registros&gt; &lt;bytes&gt;
+ *          ERRO &lt;n&gt; &lt;mensagem&gt;
+ * </pre>
+ *
+ * O intervalo é de posições de registro no arquivo (fim exclusive). Em
+ * {@code .dbf} a leitura começa direto no início da fatia
+ * ({@link DbfRecordReader#setRange}); em {@code .csv}, no byte informado pelo
+ * coordenador ({@link CsvRecordReader#seek}). Sem ele (codificação em que a
+ * posição não é acompanhada), os registros anteriores são lidos e
+ * descartados. O processo termina quando o stdin é fechado.
+ */
+public final class ShardWorker {
+
+    private static final int PROGRESS_INTERVAL = 500;
+
+    private final Path input;
+    private final ColumnMapping mapping;
+    private final Charset charset;
+    private final FormPlan plan;
+    private final Path outputDirectory;
+
+    public ShardWorker(Path input, ColumnMapping mapping, Charset charset, String formType, Path outputDirectory) {
+        this.input = input;
+        this.mapping = mapping;
+        this.charset = charset;
+        this.plan = FormPlans.get(formType);
+        this.outputDirectory = outputDirectory;
+    }
+
+    /** PDF da fatia {@code shard} no diretório de saída. */
+    static Path shardFile(Path directory, int shard) {
+        return directory.resolve(String.format("shard-%05d.pdf", shard));
+    }
+
+    /** Atende pedidos até o fim da entrada. */
+    public void serve(InputStream in, PrintStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] parts = line.trim().split(" ");
+            if (parts.length < 4 || parts.length > 5 || !"SHARD".equals(parts[0])) {
+                reply(out, "ERRO -1 Pedido inválido: " + line);
+                continue;
+            }
+            int shard = Integer.parseInt(parts[1]);
+            try {
+                long offset = parts.length == 5 ? Long.parseLong(parts[4]) : -1;
+                long[] result = render(shard, Long.parseLong(parts[2]), Long.parseLong(parts[3]), offset, out);
+                reply(out, "DONE " + shard + " " + result[0] + " " + result[1]);
+            } catch (Exception e) {
+                reply(out, "ERRO " + shard + " " + String.valueOf(e.getMessage()).replace('\n', ' '));
+            }
+        }
+    }
+
+    /** Gera o PDF da fatia; devolve {registros, bytes}. */
+    private long[] render(int shard, long start, long end, long offset, PrintStream out) throws Exception {
+        Path target = shardFile(outputDirectory, shard);
+        long[] records = new long[1];
+        try (RecordSource source = RecordSource.open(input, mapping, charset)) {
+            if (source instanceof DbfRecordReader)
+                ((DbfRecordReader) source).setRange(start, end);
+            else if (offset >= 0 && source instanceof CsvRecordReader)
+                ((CsvRecordReader) source).seek(offset, start);
+            else
+                for (long i = 0; i < start && source.hasNext(); i++)
+                    source.next();
+            long remaining = source instanceof DbfRecordReader ? Long.MAX_VALUE : end - start;
+            if (remaining <= 0 || !source.hasNext()) {
+                // Fatia só com registros apagados: não há PDF
+                Files.deleteIfExists(target);
+                return new long[] { 0, 0 };
+            }
+
+            AtomicFiles.write(target, stream -> {
+                BulkDocumentWriter<FormRecord> writer = new BulkDocumentWriter<>(stream, plan::compose, true);
+                for (long left = remaining; left > 0 && source.hasNext(); left--) {
+                    writer.write(source.next());
+                    if (++records[0] % PROGRESS_INTERVAL == 0)
+                        reply(out, "PROGRESS " + shard + " " + records[0]);
+                }
+                writer.close();
+            });
+        }
+        return new long[] { records[0], Files.size(target) };
+    }
+
+    private static void reply(PrintStream out, String line) {
+        synchronized (out) {
+            out.println(line);
+            out.flush();
+        }
+    }
+
+    /**
+     * Uso: {@code ShardWorker <entrada.dbf|csv> <mapeamento.properties>
+     * <formulário> <dir-saída> [charset]}. Normalmente iniciado por
+     * {@link ShardCoordinator}.
+     */
+    public static void main(String[] args) throws IOException {
+        ColumnMapping mapping;
+        try (InputStream in = Files.newInputStream(Path.of(args[1]))) {
+            mapping = ColumnMapping.load(in);
+        }
+        Charset charset = Charset.forName(args.length > 4 ? args[4] : "windows-1252");
+        // stdout é o canal do protocolo: nada mais deve escrever nele
+        PrintStream protocol = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        System.setOut(System.err);
+        new ShardWorker(Path.of(args[0]), mapping, charset, args[2], Path.of(args[3])).serve(System.in, protocol);
+    }
+}
@@ -0,0 +1,103 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.pdf.PdfPTable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Campo de múltipla escolha que pode ser dividido entre páginas (ver
+ * {@link PdfFieldUtils#createSplittableOptionsField}).
+ * <p>
+ * É uma tabela de uma coluna: o cabeçalho do campo é a linha de cabeçalho
+ * repetida pelo iText em cada página, e cada linha do grid é uma célula
+ * desenhada por {@link PdfFieldUtils.OptionGridEvent}. As linhas são
+ * adicionadas em blocos a uma tabela incompleta
+ * ({@link PdfPTable#setComplete(boolean) setComplete(false)}); o iText escreve
+ * e descarta cada bloco, então só as linhas da página atual ficam em memória
+ * e o tempo cresce linearmente com o número de opções.
+ */
+public final class SplittableOptionsField {
+
+    // Linhas do grid adicionadas ao documento de cada vez
+    private static final int CHUNK_ROWS = 50;
+
+    private final String fieldNumber;
+    private final String title;
+    private final String legend;
+    private final String[] labels;
+    private final String[] codes;
+    private final int columns;
+    private final boolean hasOther;
+    private final String otherVal;
+    private final List<AnswerSlot> slots;
+
+    SplittableOptionsField(String fieldNumber, String title, String legend, String[] labels, String[] codes,
+            int columns, boolean hasOther, String otherVal, List<AnswerSlot> slots) {
+        this.fieldNumber = fieldNumber;
+        this.title = title;
+        this.legend = legend;
+        this.labels = labels;
+        this.codes = codes;
+        this.columns = columns;
+        this.hasOther = hasOther;
+        this.otherVal = otherVal;
+        this.slots = slots;
+    }
+
+    /** Linhas do grid; "Outros" fica junto da última. */
+    public int getRowCount() {
+        return rowCount(labels.length, columns);
+    }
+
+    static int rowCount(int options, int columns) {
+        return Math.max(1, (options + columns - 1) / columns);
+    }
+
+    /** Altura do cabeçalho (repetido em cada página) na largura {@code width}. */
+    public float getHeaderHeight(float width) {
+        PdfPTable header = new PdfPTable(1);
+        header.addCell(PdfFieldUtils.splittableHeaderCell(fieldNumber, title, legend));
+        return LayoutMeasure.height(header, width);
+    }
+
+    /** Altura da linha {@code row} do grid (a última inclui "Outros" e o espaço até a borda). */
+    public float getRowHeight(int row) {
+        return rowHeight(labels.length, columns, hasOther, row);
+    }
+
+    /** Como {@link #getRowHeight(int)}, para um campo de {@code options} opções (usado por {@link FieldLayout}). */
+    static float rowHeight(int options, int columns, boolean hasOther, int row) {
+        boolean last = row == rowCount(options, columns) - 1;
+        int count = Math.min(options, (row + 1) * columns) - row * columns;
+        return PdfFieldUtils.OptionGridEvent.height(Math.max(0, count), columns, last && hasOther)
+                + (last ? PdfFieldUtils.MAIN_BOTTOM_PADDING : 0);
+    }
+
+    /** Adiciona o campo ao documento, na largura total, a partir da posição atual. */
+    public void addTo(Document document) throws DocumentException {
+        PdfPTable table = new PdfPTable(1);
+        table.setWidthPercentage(100);
+        table.setHeaderRows(1);
+        table.setComplete(false);
+        table.addCell(PdfFieldUtils.splittableHeaderCell(fieldNumber, title, legend));
+
+        int rows = getRowCount();
+        for (int row = 0; row < rows; row++) {
+            int from = Math.min(labels.length, row * columns);
+            int to = Math.min(labels.length, from + columns);
+            boolean last = row == rows - 1;
+            PdfFieldUtils.OptionGridEvent grid = new PdfFieldUtils.OptionGridEvent(fieldNumber,
+                    Arrays.copyOfRange(labels, from, to), Arrays.copyOfRange(codes, from, to), from, columns,
+                    last && hasOther, otherVal, slots);
+            float height = getRowHeight(row) - (last ? PdfFieldUtils.MAIN_BOTTOM_PADDING : 0);
+            table.addCell(PdfFieldUtils.splittableRowCell(grid, height, last));
+            if ((row + 1) % CHUNK_ROWS == 0 && !last)
+                document.add(table);
+        }
+        table.setComplete(true);
+        document.add(table);
+    }
+}
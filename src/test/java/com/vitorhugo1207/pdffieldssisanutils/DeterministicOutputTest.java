@@ -0,0 +1,57 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.Font;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.pdf.BaseFont;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Fonte TrueType de {@code -Dsinan.font} ou, sem ela, a DejaVu Sans do
+ * sistema; sem nenhuma das duas o teste é pulado.
+ */
+class DeterministicOutputTest {
+
+    private static final String FONT = System.getProperty(EmbeddedFonts.FONT_PROPERTY,
+            "/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf");
+
+    @Test
+    void embeddedFontRendersAreByteEqual() throws Exception {
+        assumeTrue(Files.exists(Path.of(FONT)), "Fonte não encontrada: " + FONT);
+        BaseFont font = EmbeddedFonts.get(FONT);
+
+        byte[] first = render(font, "Cefaléia, ação");
+        byte[] second = render(font, "Cefaléia, ação");
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    void subsetTagFollowsUsedGlyphs() throws Exception {
+        assumeTrue(Files.exists(Path.of(FONT)), "Fonte não encontrada: " + FONT);
+        BaseFont font = EmbeddedFonts.get(FONT);
+
+        assertNotEquals(tag(render(font, "abc")), tag(render(font, "xyz")));
+    }
+
+    private static byte[] render(BaseFont font, String text) throws Exception {
+        RecordRenderer<String> renderer = RecordRenderer.deterministic(
+                (document, record) -> document.add(new Paragraph(record, new Font(font, 9))));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        renderer.render(text, out);
+        return out.toByteArray();
+    }
+
+    private static String tag(byte[] pdf) {
+        String text = new String(pdf, StandardCharsets.ISO_8859_1);
+        int at = text.indexOf("/FontName/");
+        return text.substring(at + 10, at + 16);
+    }
+}
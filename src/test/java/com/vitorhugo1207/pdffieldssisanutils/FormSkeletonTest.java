@@ -0,0 +1,67 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FormSkeletonTest {
+
+    // Texto do campo 32 em Main
+    private static final String OCCUPATION = "Engenheiro de Software - Desenvolvedor Full Stack com experiência em "
+            + "sistemas distribuídos, microserviços e arquiteturas cloud-native. "
+            + "Especializado em Java, Spring Boot e tecnologias de containerização.";
+
+    @Test
+    void longDescriptiveAnswerIsNotTruncated() throws Exception {
+        FormPlan plan = FormPlans.get("exemplo");
+        FormRecord record = new FormRecord("1", Map.of("32", OCCUPATION));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        plan.skeletonRenderer().render(record, out);
+
+        String text = text(out.toByteArray()).replaceAll("\\s+", " ");
+        assertTrue(text.contains("containerização"), text);
+    }
+
+    @Test
+    void fillRejectsAnswerLargerThanField() throws Exception {
+        FormSkeleton skeleton = FormPlans.get("exemplo").skeleton();
+        Map<String, String> answers = Map.of("32", OCCUPATION);
+
+        assertFalse(skeleton.fits(answers));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThrows(IllegalArgumentException.class, () -> skeleton.fill(answers, out));
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    void shortAnswerUsesSkeleton() throws Exception {
+        FormSkeleton skeleton = FormPlans.get("exemplo").skeleton();
+        Map<String, String> answers = Map.of("32", "Enfermeira");
+
+        assertTrue(skeleton.fits(answers));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        skeleton.fill(answers, out);
+        assertTrue(text(out.toByteArray()).contains("Enfermeira"));
+    }
+
+    private static String text(byte[] pdf) throws Exception {
+        PdfReader reader = new PdfReader(pdf);
+        try {
+            StringBuilder text = new StringBuilder();
+            for (int page = 1; page <= reader.getNumberOfPages(); page++)
+                text.append(PdfTextExtractor.getTextFromPage(reader, page)).append('\n');
+            return text.toString();
+        } finally {
+            reader.close();
+        }
+    }
+}
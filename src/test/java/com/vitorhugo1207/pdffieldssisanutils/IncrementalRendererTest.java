@@ -0,0 +1,121 @@
+package com.vitorhugo1207.pdffieldssisanutils;
+
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IncrementalRendererTest {
+
+    private static final int ROWS = 24;
+
+    /** Formulário de várias páginas: campos descritivos e de opções alternados. */
+    private static FormPlan plan() {
+        Properties props = new Properties();
+        StringBuilder rows = new StringBuilder();
+        for (int r = 1; r <= ROWS; r++) {
+            String field = Integer.toString(100 + r);
+            rows.append(r > 1 ? ", " : "").append(r);
+            props.setProperty("row." + r + ".fields", field);
+            props.setProperty("row." + r + ".widths", "100");
+            props.setProperty("row." + r + ".spaceAfter", "true");
+            props.setProperty("field." + field + ".title", "Campo " + field);
+            if (r % 2 == 0) {
+                props.setProperty("field." + field + ".type", "options");
+                props.setProperty("field." + field + ".legend", "1 - Sim    2 - Não    9 - Ignorado");
+                props.setProperty("field." + field + ".columns", "4");
+                props.setProperty("field." + field + ".options",
+                        "Febre | Cefaléia | Mialgia | Náusea | Exantema | Diarréia | Icterícia | Petéquias");
+            } else {
+                props.setProperty("field." + field + ".type", "descriptive");
+                props.setProperty("field." + field + ".minHeight", "40");
+            }
+        }
+        props.setProperty("rows", rows.toString());
+        return FormPlans.compile("incremental", props);
+    }
+
+    private static FormRecord record(Map<String, String> changes) {
+        Map<String, String> answers = new HashMap<>();
+        for (int r = 1; r <= ROWS; r++) {
+            String field = Integer.toString(100 + r);
+            if (r % 2 == 0) {
+                for (int i = 0; i < 8; i++)
+                    answers.put(AnswerKeys.option(field, i), i % 2 == 0 ? "1" : "2");
+            } else {
+                answers.put(field, "Resposta do campo " + field);
+            }
+        }
+        answers.putAll(changes);
+        return new FormRecord("1", answers);
+    }
+
+    @Test
+    void amendingLastPageRegeneratesOnlyIt() throws Exception {
+        FormPlan plan = plan();
+        IncrementalRenderer renderer = new IncrementalRenderer(plan);
+        IncrementalRenderer.Rendition first = renderer.render(record(Map.of()));
+        assertTrue(first.getPageCount() > 1, "o formulário de teste deve ter mais de uma página");
+
+        FormRecord amended = record(Map.of(AnswerKeys.option("124", 0), "9"));
+        IncrementalRenderer.Rendition second = renderer.amend(first, amended);
+
+        assertFalse(second.getRenderedPages().contains(1));
+        assertTrue(second.getRenderedPages().contains(second.getPageCount()));
+        assertEquals(pages(full(plan, amended)), pages(second.getPdf()));
+    }
+
+    @Test
+    void amendingTextThatGrowsRepaginates() throws Exception {
+        FormPlan plan = plan();
+        IncrementalRenderer renderer = new IncrementalRenderer(plan);
+        IncrementalRenderer.Rendition first = renderer.render(record(Map.of()));
+
+        FormRecord amended = record(Map.of("113", "Texto longo ".repeat(200)));
+        IncrementalRenderer.Rendition second = renderer.amend(first, amended);
+
+        assertEquals(pages(full(plan, amended)), pages(second.getPdf()));
+        // E uma nova emenda parte das páginas já repaginadas
+        FormRecord again = record(Map.of("113", "Texto longo ".repeat(200), "101", "Outra resposta"));
+        assertEquals(pages(full(plan, again)), pages(renderer.amend(second, again).getPdf()));
+    }
+
+    @Test
+    void unchangedRecordReusesPdf() throws Exception {
+        IncrementalRenderer renderer = new IncrementalRenderer(plan());
+        IncrementalRenderer.Rendition first = renderer.render(record(Map.of()));
+        IncrementalRenderer.Rendition second = renderer.amend(first, record(Map.of()));
+
+        assertTrue(second.getRenderedPages().isEmpty());
+        assertEquals(first.getPdf(), second.getPdf());
+    }
+
+    private static byte[] full(FormPlan plan, FormRecord record) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordRenderer.of(plan::compose).render(record, out);
+        return out.toByteArray();
+    }
+
+    /** Texto de cada página. */
+    private static List<String> pages(byte[] pdf) throws Exception {
+        PdfReader reader = new PdfReader(pdf);
+        try {
+            List<String> pages = new ArrayList<>();
+            for (int page = 1; page <= reader.getNumberOfPages(); page++)
+                pages.add(PdfTextExtractor.getTextFromPage(reader, page));
+            return pages;
+        } finally {
+            reader.close();
+        }
+    }
+}